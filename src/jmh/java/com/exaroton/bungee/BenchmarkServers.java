@@ -0,0 +1,110 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.ExarotonClient;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * synthetic server lists for the benchmarks
+ */
+public final class BenchmarkServers {
+
+    /**
+     * gson instance used to create servers without the API
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * number of bungee server names per server
+     */
+    public static final int ALIASES_PER_SERVER = 3;
+
+    private BenchmarkServers() {
+    }
+
+    /**
+     * create a server list, every third server is online
+     * @param count number of servers
+     * @return servers
+     */
+    public static Server[] create(int count) {
+        Server[] servers = new Server[count];
+        for (int i = 0; i < count; i++) {
+            servers[i] = server(i, i % 3 == 0 ? ServerStatus.ONLINE : ServerStatus.OFFLINE);
+        }
+        return servers;
+    }
+
+    /**
+     * @param i      number of the server
+     * @param status server status
+     * @return synthetic server
+     */
+    public static Server server(int i, int status) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id(i));
+        json.addProperty("name", name(i));
+        json.addProperty("address", name(i) + ".exaroton.me");
+        json.addProperty("motd", "Benchmark server " + i);
+        json.addProperty("status", status);
+        json.addProperty("host", "node-" + (i % 16) + ".exaroton.host");
+        json.addProperty("port", 20000 + i % 40000);
+        return GSON.fromJson(json, Server.class);
+    }
+
+    /**
+     * create a server cache like the plugin's that serves this server list without the API
+     * @param servers server list returned by the fake client
+     * @return server cache, call {@link ServerCache#refresh()} after setting the listener
+     */
+    public static ServerCache cache(Server[] servers) {
+        ExarotonClient client = new ExarotonClient("benchmark") {
+            @Override
+            public Server[] getServers() {
+                return servers;
+            }
+        };
+        Logger logger = Logger.getLogger("benchmark");
+        ApiRequests requests = new ApiRequests(new RateLimiter(0, 1), new CircuitBreaker(5, 30), logger, 1, 0, 0);
+        return new ServerCache(client, Runnable::run, requests, logger, 3600, 3600);
+    }
+
+    /**
+     * create bungee server names for all servers
+     * @param count number of servers
+     * @return bungee server name -> exaroton address
+     */
+    public static Map<String, String> aliases(int count) {
+        Map<String, String> aliases = new HashMap<>(count * ALIASES_PER_SERVER * 2);
+        for (int i = 0; i < count; i++) {
+            String address = name(i) + ".exaroton.me";
+            aliases.put(name(i), address);
+            aliases.put("lobby-" + i, address);
+            aliases.put("game-" + (i % 10) + "-" + i, address);
+        }
+        return aliases;
+    }
+
+    /**
+     * @param i number of the server
+     * @return server id
+     */
+    public static String id(int i) {
+        return String.format(Locale.ROOT, "%016x", i * 0x9E3779B97F4A7C15L);
+    }
+
+    /**
+     * @param i number of the server
+     * @return server name
+     */
+    public static String name(int i) {
+        return "server-" + i;
+    }
+}
@@ -0,0 +1,117 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * tab completions for server names, addresses, ids and bungee server names
+ */
+@State(Scope.Benchmark)
+public class CompletionBenchmark {
+
+    /**
+     * number of servers
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int servers;
+
+    /**
+     * partial input of the player
+     */
+    @Param({"", "s", "server-1", "lobby-42"})
+    public String query;
+
+    /**
+     * server list
+     */
+    private Server[] list;
+
+    /**
+     * bungee server name -> exaroton address
+     */
+    private Map<String, String> aliases;
+
+    /**
+     * server cache like the plugin's
+     */
+    private ServerCache cache;
+
+    /**
+     * completion index kept up to date by the cache listener
+     */
+    private final AtomicReference<CompletionIndex> completions = new AtomicReference<>(CompletionIndex.EMPTY);
+
+    @Setup
+    public void setup() throws APIException {
+        list = BenchmarkServers.create(servers);
+        aliases = BenchmarkServers.aliases(servers);
+        cache = BenchmarkServers.cache(list);
+        // same listener as the plugin
+        cache.setListener(new CompletionUpdater(completions, aliases, cache::peek));
+        cache.refresh();
+    }
+
+    /**
+     * completions of /exaroton start
+     */
+    @Benchmark
+    public List<String> start() {
+        return this.serverCompletions(ServerStatus.OFFLINE);
+    }
+
+    /**
+     * completions of /exaroton stop and /exaroton restart
+     */
+    @Benchmark
+    public List<String> stop() {
+        return this.serverCompletions(ServerStatus.ONLINE);
+    }
+
+    /**
+     * completions of /exaroton switch
+     */
+    @Benchmark
+    public List<String> any() {
+        return this.serverCompletions(null);
+    }
+
+    /**
+     * completions of /exaroton start before the server list was indexed as a baseline
+     */
+    @Benchmark
+    public List<String> startLinear() {
+        return LegacyLookups.serverCompletions(list, aliases, query, ServerStatus.OFFLINE);
+    }
+
+    /**
+     * completions of /exaroton switch before the server list was indexed as a baseline
+     */
+    @Benchmark
+    public List<String> anyLinear() {
+        return LegacyLookups.serverCompletions(list, aliases, query, null);
+    }
+
+    /**
+     * same lookups as {@link ExarotonPlugin#serverCompletions(String, Integer)}
+     * @param status required server status or null
+     * @return bungee server names followed by server names, addresses and ids
+     */
+    private List<String> serverCompletions(Integer status) {
+        // like ExarotonPlugin#getCompletionIndex
+        cache.getIfPresent();
+        CompletionIndex completions = this.completions.get();
+        if (completions.getServerIndex() == null) {
+            return completions.findBungeeServers(query, null);
+        }
+
+        List<String> result = completions.findBungeeServers(query, status);
+        result.addAll(completions.find(query, status));
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * lookups of {@link ExarotonPlugin} before the server list was indexed, kept as a baseline for the benchmarks
+ * the code is copied from the plugin, only the server list and bungee servers are passed in
+ */
+public final class LegacyLookups {
+
+    private LegacyLookups() {
+    }
+
+    /**
+     * former {@link ExarotonPlugin#findServer(String, boolean)} without force
+     * @param servers       server list
+     * @param bungeeServers bungee server name -> exaroton address
+     * @param query         server name, address, id or proxy name
+     * @return found server or null
+     */
+    public static Server findServer(Server[] servers, Map<String, String> bungeeServers, String query) {
+        if (bungeeServers.containsKey(query)) {
+            query = bungeeServers.get(query);
+        }
+        final String finalQuery = query;
+
+        servers = Arrays.stream(servers)
+                .filter(server -> matchExact(server, finalQuery))
+                .toArray(Server[]::new);
+
+        switch (servers.length) {
+            case 0:
+                return null;
+
+            case 1:
+                return servers[0];
+
+            default:
+                Optional<Server> server = Arrays.stream(servers).filter(s -> s.getId().equals(finalQuery)).findFirst();
+                return server.orElse(servers[0]);
+        }
+    }
+
+    /**
+     * former {@link ExarotonPlugin#serverCompletions(String, Integer)}
+     * @param servers       server list
+     * @param bungeeServers bungee server name -> exaroton address
+     * @param query         partial server name, address or ID
+     * @param status        server status
+     * @return all matching server names, addresses and IDs
+     */
+    public static List<String> serverCompletions(Server[] servers, Map<String, String> bungeeServers, String query, Integer status) {
+        Stream<Server> matching = Arrays.stream(servers);
+        if (status != null)
+            matching = matching.filter(server -> server.hasStatus(status));
+        matching = matching.filter(server -> matchBeginning(server, query));
+        Server[] result = matching.toArray(Server[]::new);
+
+        Stream<String> names = bungeeServers.keySet().stream()
+                .filter(s -> s.startsWith(query));
+
+        if (status != null)
+            names = names.filter(name -> {
+                Server server = findServer(servers, bungeeServers, name);
+                return server != null && server.hasStatus(status);
+            });
+
+        List<String> completions = names.collect(Collectors.toList());
+        completions.addAll(getAllNames(result));
+
+        return completions;
+    }
+
+    /**
+     * @see ExarotonPlugin#matchExact(Server, String)
+     */
+    private static boolean matchExact(Server server, String query) {
+        query = query.toLowerCase(Locale.ROOT);
+        return server.getAddress().toLowerCase(Locale.ROOT).equals(query) ||
+                server.getName().toLowerCase(Locale.ROOT).equals(query) ||
+                server.getId().equals(query);
+    }
+
+    /**
+     * @see ExarotonPlugin#matchBeginning(Server, String)
+     */
+    private static boolean matchBeginning(Server server, String query) {
+        return server.getAddress().startsWith(query) || server.getName().startsWith(query) || server.getId().startsWith(query);
+    }
+
+    /**
+     * @see ExarotonPlugin#getAllNames(Server[])
+     */
+    private static List<String> getAllNames(Server[] servers) {
+        List<String> result = new ArrayList<>();
+
+        for (Server server : servers) {
+            result.add(server.getName());
+        }
+        for (Server server : servers) {
+            result.add(server.getAddress());
+        }
+        for (Server server : servers) {
+            result.add(server.getId());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * server lookups by id, name, address and bungee server name
+ */
+@State(Scope.Benchmark)
+public class ServerLookupBenchmark {
+
+    /**
+     * number of servers
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int servers;
+
+    /**
+     * server list
+     */
+    private Server[] list;
+
+    /**
+     * bungee server name -> exaroton address
+     */
+    private Map<String, String> aliases;
+
+    /**
+     * server cache like the plugin's
+     */
+    private ServerCache cache;
+
+    /**
+     * mix of ids, names, addresses, bungee server names and unknown servers
+     */
+    private String[] queries;
+
+    @Setup
+    public void setup() throws APIException {
+        list = BenchmarkServers.create(servers);
+        aliases = BenchmarkServers.aliases(servers);
+        cache = BenchmarkServers.cache(list);
+        cache.refresh();
+        queries = new String[1024];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < queries.length; i++) {
+            int server = random.nextInt(servers);
+            switch (i % 5) {
+                case 0:
+                    queries[i] = BenchmarkServers.id(server);
+                    break;
+                case 1:
+                    queries[i] = BenchmarkServers.name(server).toUpperCase(Locale.ROOT);
+                    break;
+                case 2:
+                    queries[i] = list[server].getAddress();
+                    break;
+                case 3:
+                    queries[i] = "lobby-" + server;
+                    break;
+                default:
+                    queries[i] = "unknown-" + server;
+            }
+        }
+    }
+
+    /**
+     * per-thread position in the query list
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        private String next(String[] queries) {
+            return queries[position++ & (queries.length - 1)];
+        }
+    }
+
+    /**
+     * same lookup as {@link ExarotonPlugin#findServer(String, boolean)} without force
+     */
+    @Benchmark
+    public Server indexed(Cursor cursor) throws APIException {
+        String query = cursor.next(queries);
+        return cache.get(RateLimiter.Priority.DEFAULT).find(aliases.getOrDefault(query, query));
+    }
+
+    /**
+     * linear scan of the plugin before the server list was indexed as a baseline
+     */
+    @Benchmark
+    public Server linear(Cursor cursor) {
+        return LegacyLookups.findServer(list, aliases, cursor.next(queries));
+    }
+}
@@ -0,0 +1,112 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * bursts of status updates from the websocket going through the server executor, the server cache and the completion index
+ * the updates take the same path as in {@link ServerStatusListener#statusUpdate(Server, Server)}, without the proxy
+ */
+@State(Scope.Benchmark)
+public class StatusUpdateBenchmark {
+
+    /**
+     * number of status updates in a burst
+     */
+    private static final int BURST = 100;
+
+    /**
+     * number of servers
+     */
+    @Param({"10", "100", "1000", "10000"})
+    public int servers;
+
+    /**
+     * server cache
+     */
+    private ServerCache cache;
+
+    /**
+     * completion index kept up to date by the cache listener
+     */
+    private final AtomicReference<CompletionIndex> completions = new AtomicReference<>(CompletionIndex.EMPTY);
+
+    /**
+     * thread pool of the server executor
+     */
+    private ExecutorService threads;
+
+    /**
+     * runs the updates of each server in order like the plugin's server executor
+     */
+    private SerialExecutor serverExecutor;
+
+    /**
+     * online and offline version of each server
+     */
+    private Server[] online, offline;
+
+    /**
+     * is the server online after the updates that were sent so far
+     */
+    private boolean[] isOnline;
+
+    /**
+     * next server to update
+     */
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        Server[] list = BenchmarkServers.create(servers);
+        online = new Server[servers];
+        offline = new Server[servers];
+        isOnline = new boolean[servers];
+        for (int i = 0; i < servers; i++) {
+            online[i] = BenchmarkServers.server(i, ServerStatus.ONLINE);
+            offline[i] = BenchmarkServers.server(i, ServerStatus.OFFLINE);
+            isOnline[i] = list[i].hasStatus(ServerStatus.ONLINE);
+        }
+
+        threads = Executors.newFixedThreadPool(16);
+        serverExecutor = new SerialExecutor(threads, Logger.getLogger("benchmark"));
+        cache = BenchmarkServers.cache(list);
+        // same listener as the plugin
+        cache.setListener(new CompletionUpdater(completions, BenchmarkServers.aliases(servers), cache::peek));
+        cache.refresh();
+    }
+
+    @TearDown
+    public void tearDown() {
+        threads.shutdownNow();
+    }
+
+    /**
+     * every update changes the status of a server, so the completion index always has to move entries
+     */
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public CompletionIndex burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BURST);
+        for (int i = 0; i < BURST; i++) {
+            int server = next;
+            next = server + 1 == servers ? 0 : server + 1;
+            Server update = isOnline[server] ? offline[server] : online[server];
+            isOnline[server] = !isOnline[server];
+            // like ServerStatusListener#handleStatusUpdate -> ExarotonPlugin#updateServer
+            serverExecutor.execute(update.getId(), () -> {
+                cache.update(update);
+                done.countDown();
+            });
+        }
+        done.await();
+        return completions.get();
+    }
+}
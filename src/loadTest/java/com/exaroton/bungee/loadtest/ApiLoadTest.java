@@ -0,0 +1,107 @@
+package com.exaroton.bungee.loadtest;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.exaroton.bungee.ExarotonPluginAPI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * sends a mix of lookups, starts and stops through the plugin API
+ * 60% lookups that request the current state, 30% cached lookups and 10% starts or stops
+ */
+public class ApiLoadTest {
+
+    /**
+     * fake exaroton API
+     */
+    private final FakeExarotonApi api;
+
+    /**
+     * number of operations
+     */
+    private final int operations;
+
+    /**
+     * number of threads sending operations
+     */
+    private final int concurrency;
+
+    /**
+     * @param api         fake exaroton API
+     * @param operations  number of operations
+     * @param concurrency number of threads sending operations
+     */
+    public ApiLoadTest(FakeExarotonApi api, int operations, int concurrency) {
+        this.api = api;
+        this.operations = Math.max(1, operations);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * run the load test and wait until it is finished
+     * @return report
+     * @throws InterruptedException interrupted while waiting
+     */
+    public List<String> run() throws InterruptedException {
+        LatencyRecorder lookups = new LatencyRecorder();
+        LatencyRecorder cachedLookups = new LatencyRecorder();
+        LatencyRecorder actions = new LatencyRecorder();
+        List<FakeServer> servers = api.getServers();
+        long requestsBefore = api.getRequestCount();
+        AtomicInteger remaining = new AtomicInteger(operations);
+
+        ExecutorService threads = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            threads.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (remaining.getAndDecrement() > 0) {
+                    String name = servers.get(random.nextInt(servers.size())).getName();
+                    int operation = random.nextInt(10);
+                    LatencyRecorder recorder = operation < 6 ? lookups : operation < 9 ? cachedLookups : actions;
+                    long operationStart = System.nanoTime();
+                    try {
+                        if (operation < 6) {
+                            ExarotonPluginAPI.findServer(name);
+                        }
+                        else if (operation < 9) {
+                            ExarotonPluginAPI.findServer(name, 30, TimeUnit.SECONDS);
+                        }
+                        else {
+                            Server server = ExarotonPluginAPI.findServer(name, 1, TimeUnit.SECONDS);
+                            if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                                ExarotonPluginAPI.startServer(server);
+                            }
+                            else if (server.hasStatus(ServerStatus.ONLINE)) {
+                                ExarotonPluginAPI.stopServer(server);
+                            }
+                        }
+                        recorder.record(System.nanoTime() - operationStart);
+                    } catch (Exception e) {
+                        recorder.error();
+                    }
+                }
+            });
+        }
+        threads.shutdown();
+        threads.awaitTermination(1, TimeUnit.HOURS);
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "%d operations with %d threads in %.1fs (%.1f/s)",
+                operations, concurrency, seconds, operations / seconds));
+        report.add(lookups.summary("lookups"));
+        report.add(cachedLookups.summary("cached lookups"));
+        report.add(actions.summary("starts/stops"));
+        report.add("API requests: " + (api.getRequestCount() - requestsBefore) + " " + api.getRequests());
+        return report;
+    }
+}
@@ -0,0 +1,678 @@
+package com.exaroton.bungee.loadtest;
+
+import com.exaroton.api.server.ServerStatus;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import net.md_5.bungee.config.Configuration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * in-process stand-in for the exaroton REST API and websocket
+ * serves /v1/servers, starting, stopping and restarting servers and status updates on one port
+ * servers boot and stop after a configurable time, latency and failures can be injected
+ */
+public class FakeExarotonApi {
+
+    /**
+     * maximum number of players of every server
+     */
+    public static final int MAX_PLAYERS = 20;
+
+    /**
+     * GUID for the websocket handshake
+     */
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    /**
+     * /v1/servers/{id}/{action}
+     */
+    private static final Pattern SERVER_PATH = Pattern.compile("^/v1/servers/([^/]+)/?(start|stop|restart|websocket)?/?$");
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * host to listen on
+     */
+    private final String host;
+
+    /**
+     * port to listen on (0 for any free port)
+     */
+    private final int port;
+
+    /**
+     * milliseconds from starting a server until it is online
+     */
+    private final long bootTime;
+
+    /**
+     * milliseconds from stopping a server until it is offline
+     */
+    private final long stopTime;
+
+    /**
+     * average milliseconds added to every request
+     */
+    private final long latency;
+
+    /**
+     * share of requests that are answered with an error
+     */
+    private final double failureRate;
+
+    /**
+     * share of requests where the connection is closed without an answer
+     */
+    private final double dropRate;
+
+    /**
+     * servers in the order they are listed
+     */
+    private final List<FakeServer> serverList = new ArrayList<>();
+
+    /**
+     * server id -> server
+     */
+    private final Map<String, FakeServer> servers = new HashMap<>();
+
+    /**
+     * server id -> websocket sessions subscribed to this server
+     */
+    private final Map<String, Set<WebSocketSession>> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * endpoint -> number of requests
+     */
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+
+    /**
+     * number of requests answered with an injected error
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * number of requests dropped without an answer
+     */
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * number of status updates sent over websockets
+     */
+    private final LongAdder statusUpdates = new LongAdder();
+
+    /**
+     * handles connections
+     */
+    private final ExecutorService connections;
+
+    /**
+     * runs status transitions and keep-alives
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * server socket or null if the API isn't running
+     */
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * @param logger   logger
+     * @param host     host to bind
+     * @param port     port to bind
+     * @param settings settings (servers, online-share, boot-time, stop-time, latency, failure-rate, drop-rate)
+     */
+    public FakeExarotonApi(Logger logger, String host, int port, Configuration settings) {
+        this.logger = logger;
+        this.host = host;
+        this.port = port;
+        this.bootTime = Math.max(0, settings.getLong("boot-time", 10000));
+        this.stopTime = Math.max(0, settings.getLong("stop-time", 3000));
+        this.latency = Math.max(0, settings.getLong("latency", 20));
+        this.failureRate = settings.getDouble("failure-rate", 0);
+        this.dropRate = settings.getDouble("drop-rate", 0);
+
+        int count = settings.getInt("servers", 100);
+        double onlineShare = settings.getDouble("online-share", 0.25);
+        for (int i = 0; i < count; i++) {
+            boolean online = i < Math.round(count * onlineShare);
+            FakeServer server = new FakeServer(String.format(Locale.ROOT, "%016x", (i + 1) * 0x9E3779B97F4A7C15L),
+                    "server-" + i, "127.0.0.1", 30000 + i, MAX_PLAYERS, online ? ServerStatus.ONLINE : ServerStatus.OFFLINE);
+            serverList.add(server);
+            servers.put(server.getId(), server);
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "fake-exaroton-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "fake-exaroton-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * bind the port and start accepting connections
+     * @throws IOException the port can't be bound
+     */
+    public void start() throws IOException {
+        ServerSocket socket = new ServerSocket();
+        socket.bind(new InetSocketAddress(host, port));
+        this.serverSocket = socket;
+        connections.execute(this::accept);
+        scheduler.scheduleAtFixedRate(() -> this.broadcast(null, "{\"type\":\"keep-alive\"}"), 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * close all connections and stop accepting new ones
+     */
+    public void stop() {
+        ServerSocket socket = this.serverSocket;
+        this.serverSocket = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        for (Set<WebSocketSession> serverSessions : sessions.values()) {
+            serverSessions.forEach(WebSocketSession::close);
+        }
+        scheduler.shutdownNow();
+        connections.shutdownNow();
+    }
+
+    /**
+     * @return base URL of the API for the api-url option
+     */
+    public String getUrl() {
+        ServerSocket socket = this.serverSocket;
+        return "http://" + host + ":" + (socket == null ? port : socket.getLocalPort()) + "/v1/";
+    }
+
+    /**
+     * @return all servers in the order they are listed
+     */
+    public List<FakeServer> getServers() {
+        return Collections.unmodifiableList(serverList);
+    }
+
+    /**
+     * @param id server id
+     * @return server or null
+     */
+    public FakeServer getServer(String id) {
+        return servers.get(id);
+    }
+
+    /**
+     * change the status of a server and send the update to all subscribed websockets
+     * @param server server
+     * @param status new status
+     */
+    public void setStatus(FakeServer server, int status) {
+        server.setStatus(status);
+        this.sendStatus(server);
+    }
+
+    /**
+     * send the current state of a server to all subscribed websockets
+     * @param server server
+     */
+    public void sendStatus(FakeServer server) {
+        JsonObject message = new JsonObject();
+        message.addProperty("type", "status");
+        message.add("data", server.toJson());
+        this.broadcast(server.getId(), message.toString());
+    }
+
+    /**
+     * @return endpoint -> number of requests
+     */
+    public Map<String, Long> getRequests() {
+        Map<String, Long> result = new TreeMap<>();
+        requests.forEach((endpoint, count) -> result.put(endpoint, count.sum()));
+        return result;
+    }
+
+    /**
+     * @return total number of requests
+     */
+    public long getRequestCount() {
+        long count = 0;
+        for (LongAdder adder : requests.values()) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return number of requests answered with an injected error
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return number of requests dropped without an answer
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of status updates sent over websockets
+     */
+    public long getStatusUpdates() {
+        return statusUpdates.sum();
+    }
+
+    /**
+     * @return number of open websocket sessions
+     */
+    public int getSessionCount() {
+        int count = 0;
+        for (Set<WebSocketSession> serverSessions : sessions.values()) {
+            count += serverSessions.size();
+        }
+        return count;
+    }
+
+    /**
+     * @param serverId server id
+     * @return does a websocket session subscribe to this server
+     */
+    public boolean hasSession(String serverId) {
+        Set<WebSocketSession> serverSessions = sessions.get(serverId);
+        return serverSessions != null && !serverSessions.isEmpty();
+    }
+
+    /**
+     * accept connections until the server socket is closed
+     */
+    private void accept() {
+        ServerSocket socket;
+        while ((socket = this.serverSocket) != null) {
+            try {
+                Socket connection = socket.accept();
+                connections.execute(() -> this.handle(connection));
+            } catch (SocketException e) {
+                // server socket closed
+                return;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Fake exaroton API failed to accept a connection", e);
+            }
+        }
+    }
+
+    /**
+     * answer requests on this connection until it is closed or upgraded to a websocket
+     * @param socket connection
+     */
+    private void handle(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                Request request = Request.read(in);
+                if (request == null) break;
+
+                Matcher matcher = SERVER_PATH.matcher(request.path);
+                if (matcher.matches() && "websocket".equals(matcher.group(2))) {
+                    this.count("websocket");
+                    this.upgrade(socket, in, out, request, matcher.group(1));
+                    return;
+                }
+
+                if (!this.answer(request, matcher, out) || "close".equalsIgnoreCase(request.headers.get("connection"))) {
+                    break;
+                }
+            }
+        } catch (IOException ignored) {
+            // the client is gone
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @param request request
+     * @param matcher match of the server path
+     * @param out     output
+     * @return keep the connection open
+     * @throws IOException exception writing the response
+     */
+    private boolean answer(Request request, Matcher matcher, OutputStream out) throws IOException {
+        String endpoint = request.path.matches("^/v1/servers/?$") ? "servers"
+                : matcher.matches() ? (matcher.group(2) == null ? "server" : matcher.group(2)) : "other";
+        this.count(endpoint);
+
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency / 2 + ThreadLocalRandom.current().nextLong(latency + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < dropRate) {
+            dropped.increment();
+            return false;
+        }
+        if (random.nextDouble() < failureRate) {
+            failures.increment();
+            respond(out, 500, null, "Injected failure");
+            return true;
+        }
+
+        String authorization = request.headers.get("authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            respond(out, 401, null, "Missing API token");
+            return true;
+        }
+
+        if (endpoint.equals("servers")) {
+            JsonArray data = new JsonArray();
+            for (FakeServer server : serverList) {
+                data.add(server.toJson());
+            }
+            respond(out, 200, data, null);
+            return true;
+        }
+        if (endpoint.equals("other")) {
+            respond(out, 404, null, "Not found");
+            return true;
+        }
+
+        FakeServer server = servers.get(matcher.group(1));
+        if (server == null) {
+            respond(out, 404, null, "Server not found");
+            return true;
+        }
+
+        String error = null;
+        switch (endpoint) {
+            case "start":
+                error = this.startServer(server);
+                break;
+            case "stop":
+                error = this.stopServer(server);
+                break;
+            case "restart":
+                error = this.restartServer(server);
+                break;
+        }
+        if (error != null) {
+            respond(out, 400, null, error);
+        } else {
+            respond(out, 200, endpoint.equals("server") ? server.toJson() : null, null);
+        }
+        return true;
+    }
+
+    /**
+     * @param server server to start
+     * @return error or null
+     */
+    private synchronized String startServer(FakeServer server) {
+        if (server.getStatus() != ServerStatus.OFFLINE && server.getStatus() != ServerStatus.CRASHED) {
+            return "Server is not offline";
+        }
+        this.setStatus(server, ServerStatus.LOADING);
+        this.schedule(server, server.getVersion(), ServerStatus.STARTING, bootTime / 2,
+                version -> this.schedule(server, version, ServerStatus.ONLINE, bootTime - bootTime / 2, null));
+        return null;
+    }
+
+    /**
+     * @param server server to stop
+     * @return error or null
+     */
+    private synchronized String stopServer(FakeServer server) {
+        if (server.getStatus() != ServerStatus.ONLINE && server.getStatus() != ServerStatus.STARTING) {
+            return "Server is not online";
+        }
+        this.setStatus(server, ServerStatus.STOPPING);
+        this.schedule(server, server.getVersion(), ServerStatus.OFFLINE, stopTime, null);
+        return null;
+    }
+
+    /**
+     * @param server server to restart
+     * @return error or null
+     */
+    private synchronized String restartServer(FakeServer server) {
+        if (server.getStatus() != ServerStatus.ONLINE) {
+            return "Server is not online";
+        }
+        this.setStatus(server, ServerStatus.RESTARTING);
+        this.schedule(server, server.getVersion(), ServerStatus.STARTING, stopTime,
+                version -> this.schedule(server, version, ServerStatus.ONLINE, bootTime, null));
+        return null;
+    }
+
+    /**
+     * change the status later unless something else changed it in the meantime
+     * @param server  server
+     * @param version version of the status when the transition was scheduled
+     * @param status  new status
+     * @param delay   milliseconds until the transition
+     * @param next    called with the version of the new status or null
+     */
+    private void schedule(FakeServer server, long version, int status, long delay, LongConsumer next) {
+        scheduler.schedule(() -> {
+            long newVersion = server.transition(version, status);
+            if (newVersion != -1) {
+                this.sendStatus(server);
+                if (next != null) {
+                    next.accept(newVersion);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * finish the websocket handshake and keep the session open
+     * @param socket   connection
+     * @param in       input
+     * @param out      output
+     * @param request  handshake request
+     * @param serverId id of the requested server
+     * @throws IOException exception writing the response
+     */
+    private void upgrade(Socket socket, InputStream in, OutputStream out, Request request, String serverId) throws IOException {
+        String key = request.headers.get("sec-websocket-key");
+        if (key == null || !servers.containsKey(serverId)) {
+            respond(out, key == null ? 400 : 404, null, key == null ? "Not a websocket request" : "Server not found");
+            socket.close();
+            return;
+        }
+
+        String accept;
+        try {
+            accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                    .digest((key.trim() + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+
+        WebSocketSession session = new WebSocketSession(socket, in, serverId);
+        Set<WebSocketSession> serverSessions = sessions.computeIfAbsent(serverId, id -> ConcurrentHashMap.newKeySet());
+        serverSessions.add(session);
+        try {
+            session.send("{\"type\":\"connected\"}");
+            session.send("{\"type\":\"ready\",\"data\":\"" + serverId + "\"}");
+            session.read();
+        } finally {
+            serverSessions.remove(session);
+        }
+    }
+
+    /**
+     * @param serverId server id or null for all sessions
+     * @param message  message
+     */
+    private void broadcast(String serverId, String message) {
+        Collection<Set<WebSocketSession>> targets = serverId == null ? sessions.values()
+                : Collections.singleton(sessions.getOrDefault(serverId, Collections.emptySet()));
+        for (Set<WebSocketSession> serverSessions : targets) {
+            for (WebSocketSession session : serverSessions) {
+                if (session.send(message) && serverId != null) {
+                    statusUpdates.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param endpoint requested endpoint
+     */
+    private void count(String endpoint) {
+        requests.computeIfAbsent(endpoint, e -> new LongAdder()).increment();
+    }
+
+    /**
+     * write a response in the format of the exaroton API
+     * @param out   output
+     * @param code  HTTP status code
+     * @param data  response data or null
+     * @param error error or null
+     * @throws IOException exception writing the response
+     */
+    private static void respond(OutputStream out, int code, JsonElement data, String error) throws IOException {
+        JsonObject json = new JsonObject();
+        json.addProperty("success", error == null);
+        json.add("error", error == null ? null : new JsonPrimitive(error));
+        json.add("data", data);
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+
+        out.write(("HTTP/1.1 " + code + " " + (code < 400 ? "OK" : "Error") + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * HTTP request
+     */
+    private static class Request {
+
+        /**
+         * request path without the query
+         */
+        private final String path;
+
+        /**
+         * lowercase header name -> value
+         */
+        private final Map<String, String> headers;
+
+        private Request(String path, Map<String, String> headers) {
+            this.path = path;
+            this.headers = headers;
+        }
+
+        /**
+         * read the next request and skip its body
+         * @param in input
+         * @return request or null if the connection was closed
+         * @throws IOException invalid request
+         */
+        private static Request read(InputStream in) throws IOException {
+            String requestLine = readLine(in);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return null;
+            }
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 2) {
+                throw new IOException("Invalid request line: " + requestLine);
+            }
+
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                }
+            }
+
+            long length = Long.parseLong(headers.getOrDefault("content-length", "0"));
+            for (long skipped = 0; skipped < length; skipped++) {
+                if (in.read() == -1) break;
+            }
+
+            String path = parts[1];
+            int query = path.indexOf('?');
+            return new Request(query == -1 ? path : path.substring(0, query), headers);
+        }
+
+        /**
+         * @param in input
+         * @return line without the line break or null at the end of the input
+         * @throws IOException exception reading the input
+         */
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    break;
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            if (b == -1 && line.size() == 0) {
+                return null;
+            }
+            return line.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+}
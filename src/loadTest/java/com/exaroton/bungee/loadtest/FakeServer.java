@@ -0,0 +1,179 @@
+package com.exaroton.bungee.loadtest;
+
+import com.exaroton.api.server.ServerStatus;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * state of a server in the fake exaroton API
+ */
+public class FakeServer {
+
+    /**
+     * server id
+     */
+    private final String id;
+
+    /**
+     * server name
+     */
+    private final String name;
+
+    /**
+     * host the server runs on while it is online
+     */
+    private final String host;
+
+    /**
+     * port the server runs on while it is online
+     */
+    private final int port;
+
+    /**
+     * maximum number of players
+     */
+    private final int maxPlayers;
+
+    /**
+     * current status
+     */
+    private volatile int status;
+
+    /**
+     * number of players on the server
+     */
+    private volatile int players;
+
+    /**
+     * increased on every status change, used to ignore outdated scheduled transitions
+     */
+    private volatile long version;
+
+    /**
+     * @param id         server id
+     * @param name       server name
+     * @param host       host the server runs on while it is online
+     * @param port       port the server runs on while it is online
+     * @param maxPlayers maximum number of players
+     * @param status     initial status
+     */
+    public FakeServer(String id, String name, String host, int port, int maxPlayers, int status) {
+        this.id = id;
+        this.name = name;
+        this.host = host;
+        this.port = port;
+        this.maxPlayers = maxPlayers;
+        this.status = status;
+    }
+
+    /**
+     * @return server id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return server name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return server address
+     */
+    public String getAddress() {
+        return name + ".exaroton.me";
+    }
+
+    /**
+     * @return current status
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return number of players on the server
+     */
+    public int getPlayers() {
+        return players;
+    }
+
+    /**
+     * @param players number of players on the server
+     */
+    public void setPlayers(int players) {
+        this.players = Math.max(0, Math.min(maxPlayers, players));
+    }
+
+    /**
+     * @return version of the current status
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param status new status
+     * @return version of the new status
+     */
+    public synchronized long setStatus(int status) {
+        this.status = status;
+        if (status != ServerStatus.ONLINE) {
+            this.players = 0;
+        }
+        return ++version;
+    }
+
+    /**
+     * change the status if the server hasn't changed since
+     * @param expectedVersion version of the status when the transition was scheduled
+     * @param status          new status
+     * @return version of the new status or -1 if the server changed in the meantime
+     */
+    public synchronized long transition(long expectedVersion, int status) {
+        if (version != expectedVersion) {
+            return -1;
+        }
+        return this.setStatus(status);
+    }
+
+    /**
+     * @return server in the format of the exaroton API
+     */
+    public JsonObject toJson() {
+        int status = this.status;
+        boolean online = status == ServerStatus.ONLINE;
+
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("name", name);
+        json.addProperty("address", this.getAddress());
+        json.addProperty("motd", "A fake exaroton server");
+        json.addProperty("status", status);
+        if (online) {
+            json.addProperty("host", host);
+            json.addProperty("port", port);
+        }
+        else {
+            json.add("host", null);
+            json.add("port", null);
+        }
+        json.addProperty("shared", false);
+
+        JsonObject players = new JsonObject();
+        players.addProperty("max", maxPlayers);
+        players.addProperty("count", online ? this.players : 0);
+        players.add("list", new JsonArray());
+        json.add("players", players);
+
+        JsonObject software = new JsonObject();
+        software.addProperty("id", "fake");
+        software.addProperty("name", "Paper");
+        software.addProperty("version", "1.19");
+        json.add("software", software);
+        return json;
+    }
+}
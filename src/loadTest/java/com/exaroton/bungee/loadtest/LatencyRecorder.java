@@ -0,0 +1,80 @@
+package com.exaroton.bungee.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * records every duration of a load test to report exact percentiles
+ */
+public class LatencyRecorder {
+
+    /**
+     * recorded durations in nanoseconds
+     */
+    private long[] durations = new long[1024];
+
+    /**
+     * number of recorded durations
+     */
+    private int count = 0;
+
+    /**
+     * number of failed operations
+     */
+    private int errors = 0;
+
+    /**
+     * @param duration duration in nanoseconds
+     */
+    public synchronized void record(long duration) {
+        if (count == durations.length) {
+            durations = Arrays.copyOf(durations, count * 2);
+        }
+        durations[count++] = duration;
+    }
+
+    /**
+     * count a failed operation
+     */
+    public synchronized void error() {
+        errors++;
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of failed operations
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @param percentile percentile (0-100)
+     * @return duration in milliseconds or 0 if nothing was recorded
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(durations, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @param name name of the operation
+     * @return count, errors, p50, p99 and maximum
+     */
+    public String summary(String name) {
+        return String.format(Locale.ROOT, "%s: %d ok, %d failed, p50 %.1fms, p99 %.1fms, max %.1fms",
+                name, this.getCount(), this.getErrors(), this.getPercentile(50), this.getPercentile(99), this.getPercentile(100));
+    }
+}
@@ -0,0 +1,122 @@
+package com.exaroton.bungee.loadtest;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.plugin.Command;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * /loadtest api [operations] [concurrency]
+ * /loadtest switch [players] [servers] [connect-time]
+ * /loadtest storm [updates]
+ * /loadtest stats
+ */
+public class LoadTestCommand extends Command {
+
+    /**
+     * load test plugin
+     */
+    private final LoadTestPlugin plugin;
+
+    /**
+     * is a load test running
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * @param plugin load test plugin
+     */
+    public LoadTestCommand(LoadTestPlugin plugin) {
+        super("loadtest", "exaroton.loadtest");
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] args) {
+        String command = args.length == 0 ? "" : args[0];
+        switch (command) {
+            case "api":
+                this.run(sender, () -> new ApiLoadTest(plugin.getApi(),
+                        argument(args, 1, 1000), argument(args, 2, 16)).run());
+                break;
+            case "switch":
+                this.run(sender, () -> new SwitchLoadTest(plugin.getApi(),
+                        argument(args, 1, 1000), argument(args, 2, 10), argument(args, 3, 50)).run());
+                break;
+            case "storm":
+                this.run(sender, () -> new StatusStormTest(plugin.getApi(), plugin.getExarotonPlugin(),
+                        argument(args, 1, 100)).run());
+                break;
+            case "stats":
+                FakeExarotonApi api = plugin.getApi();
+                send(sender, "Requests: " + api.getRequests());
+                send(sender, "Injected failures: " + api.getFailures() + ", dropped: " + api.getDropped());
+                send(sender, "Websocket sessions: " + api.getSessionCount() + ", status updates sent: " + api.getStatusUpdates());
+                break;
+            default:
+                send(sender, ChatColor.RED + "Usage: /loadtest <api|switch|storm|stats>");
+        }
+    }
+
+    /**
+     * run a load test asynchronously and send its report
+     * @param sender command sender
+     * @param test   load test
+     */
+    private void run(CommandSender sender, LoadTest test) {
+        if (!running.compareAndSet(false, true)) {
+            send(sender, ChatColor.RED + "A load test is already running.");
+            return;
+        }
+
+        send(sender, "Running load test...");
+        plugin.getProxy().getScheduler().runAsync(plugin, () -> {
+            try {
+                List<String> report = test.run();
+                for (String line : report) {
+                    plugin.getLogger().info(line);
+                    send(sender, line);
+                }
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Load test failed", e);
+                send(sender, ChatColor.RED + "Load test failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * @param args     command arguments
+     * @param index    argument index
+     * @param fallback value if the argument is missing or invalid
+     * @return argument as a number
+     */
+    private static int argument(String[] args, int index, int fallback) {
+        try {
+            return args.length > index ? Integer.parseInt(args[index]) : fallback;
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * @param sender  command sender
+     * @param message message
+     */
+    private static void send(CommandSender sender, String message) {
+        sender.sendMessage(new TextComponent(ChatColor.GRAY + "[loadtest] " + ChatColor.RESET + message));
+    }
+
+    /**
+     * load test that returns a report
+     */
+    @FunctionalInterface
+    private interface LoadTest {
+        List<String> run() throws Exception;
+    }
+}
@@ -0,0 +1,113 @@
+package com.exaroton.bungee.loadtest;
+
+import com.exaroton.bungee.ExarotonPlugin;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.config.Configuration;
+import net.md_5.bungee.config.ConfigurationProvider;
+import net.md_5.bungee.config.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * load test harness for the exaroton plugin
+ * runs a fake exaroton API in the proxy at the address the exaroton plugin is pointed at with the exaroton.api-url
+ * system property, the config of the exaroton plugin is never changed
+ */
+public class LoadTestPlugin extends Plugin {
+
+    /**
+     * name of the exaroton plugin
+     */
+    private static final String EXAROTON_PLUGIN = "ExarotonBungeePlugin";
+
+    /**
+     * system property with the API URL used by the exaroton plugin
+     */
+    private static final String API_URL_PROPERTY = "exaroton.api-url";
+
+    /**
+     * logger
+     */
+    private final Logger logger = this.getLogger();
+
+    /**
+     * fake exaroton API
+     */
+    private FakeExarotonApi api;
+
+    @Override
+    public void onLoad() {
+        String apiUrl = System.getProperty(API_URL_PROPERTY);
+        if (apiUrl == null || apiUrl.isEmpty()) {
+            logger.severe("Start the proxy with -D" + API_URL_PROPERTY + "=http://127.0.0.1:8380/v1/ "
+                    + "-Dexaroton.apiToken=load-test to run the load tests");
+            return;
+        }
+
+        // plugins are loaded before any plugin is enabled, so the API is running before the exaroton plugin uses it
+        try {
+            URI uri = new URI(apiUrl);
+            Configuration config = this.loadConfig();
+            this.api = new FakeExarotonApi(logger, uri.getHost(), uri.getPort() == -1 ? 80 : uri.getPort(), config.getSection("api"));
+            api.start();
+            logger.info("Fake exaroton API with " + api.getServers().size() + " servers running at " + api.getUrl());
+        } catch (IOException | URISyntaxException e) {
+            logger.log(Level.SEVERE, "Failed to start fake exaroton API", e);
+            if (api != null) {
+                api.stop();
+                this.api = null;
+            }
+        }
+    }
+
+    @Override
+    public void onEnable() {
+        if (api != null) {
+            this.getProxy().getPluginManager().registerCommand(this, new LoadTestCommand(this));
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        if (api != null) {
+            api.stop();
+        }
+    }
+
+    /**
+     * @return fake exaroton API
+     */
+    public FakeExarotonApi getApi() {
+        return api;
+    }
+
+    /**
+     * @return exaroton plugin
+     */
+    public ExarotonPlugin getExarotonPlugin() {
+        return (ExarotonPlugin) this.getProxy().getPluginManager().getPlugin(EXAROTON_PLUGIN);
+    }
+
+    /**
+     * load and/or create config.yml
+     * @return configuration
+     * @throws IOException exception loading config
+     */
+    private Configuration loadConfig() throws IOException {
+        this.getDataFolder().mkdirs();
+        File configFile = new File(this.getDataFolder(), "config.yml");
+        if (!configFile.exists()) {
+            try (InputStream in = getResourceAsStream("config.yml")) {
+                Files.copy(in, configFile.toPath());
+            }
+        }
+        return ConfigurationProvider.getProvider(YamlConfiguration.class).load(configFile);
+    }
+}
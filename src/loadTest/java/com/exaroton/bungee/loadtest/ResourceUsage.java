@@ -0,0 +1,57 @@
+package com.exaroton.bungee.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+/**
+ * threads and heap of the proxy at one point in time
+ */
+public class ResourceUsage {
+
+    /**
+     * live threads
+     */
+    private final int threads;
+
+    /**
+     * highest number of live threads since the last measurement
+     */
+    private final int peakThreads;
+
+    /**
+     * used heap in bytes after a garbage collection
+     */
+    private final long heap;
+
+    private ResourceUsage(int threads, int peakThreads, long heap) {
+        this.threads = threads;
+        this.peakThreads = peakThreads;
+        this.heap = heap;
+    }
+
+    /**
+     * measure the current usage, collects garbage first
+     * resets the peak thread count
+     * @return current usage
+     */
+    public static ResourceUsage measure() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        memory.gc();
+        ResourceUsage usage = new ResourceUsage(threads.getThreadCount(), threads.getPeakThreadCount(),
+                memory.getHeapMemoryUsage().getUsed());
+        threads.resetPeakThreadCount();
+        return usage;
+    }
+
+    /**
+     * @param before usage before the load test
+     * @return threads and heap compared to the usage before the load test
+     */
+    public String compareTo(ResourceUsage before) {
+        return String.format(Locale.ROOT, "threads: %d before, %d peak, %d after; heap: %.1fMB before, %.1fMB after (%+.1fMB)",
+                before.threads, peakThreads, threads, before.heap / 1048576.0, heap / 1048576.0, (heap - before.heap) / 1048576.0);
+    }
+}
@@ -0,0 +1,122 @@
+package com.exaroton.bungee.loadtest;
+
+import net.md_5.bungee.api.Callback;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * player that only exists for the plugin
+ * connecting succeeds after a fixed delay, everything else is ignored
+ */
+public class SimulatedPlayer implements InvocationHandler {
+
+    /**
+     * player name
+     */
+    private final String name;
+
+    /**
+     * player uuid
+     */
+    private final UUID uuid;
+
+    /**
+     * runs the connect callbacks
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * milliseconds until a connection succeeds
+     */
+    private final long connectTime;
+
+    /**
+     * called with the server info when the player is connected to a server
+     */
+    private final Consumer<ServerInfo> connected;
+
+    /**
+     * @param name        player name
+     * @param scheduler   runs the connect callbacks
+     * @param connectTime milliseconds until a connection succeeds
+     * @param connected   called with the server info when the player is connected to a server
+     */
+    private SimulatedPlayer(String name, ScheduledExecutorService scheduler, long connectTime, Consumer<ServerInfo> connected) {
+        this.name = name;
+        this.uuid = UUID.nameUUIDFromBytes(("LoadTest:" + name).getBytes(StandardCharsets.UTF_8));
+        this.scheduler = scheduler;
+        this.connectTime = connectTime;
+        this.connected = connected;
+    }
+
+    /**
+     * create a simulated player
+     * @param name        player name
+     * @param scheduler   runs the connect callbacks
+     * @param connectTime milliseconds until a connection succeeds
+     * @param connected   called with the server info when the player is connected to a server
+     * @return player
+     */
+    public static ProxiedPlayer create(String name, ScheduledExecutorService scheduler, long connectTime, Consumer<ServerInfo> connected) {
+        return (ProxiedPlayer) Proxy.newProxyInstance(SimulatedPlayer.class.getClassLoader(),
+                new Class<?>[]{ProxiedPlayer.class},
+                new SimulatedPlayer(name, scheduler, connectTime, connected));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getName":
+            case "getDisplayName":
+            case "toString":
+                return name;
+            case "getUniqueId":
+                return uuid;
+            case "isConnected":
+                return true;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "connect":
+                if (args.length >= 1 && args[0] instanceof ServerInfo) {
+                    ServerInfo info = (ServerInfo) args[0];
+                    Callback<Boolean> callback = args.length >= 2 && args[1] instanceof Callback ? (Callback<Boolean>) args[1] : null;
+                    scheduler.schedule(() -> {
+                        connected.accept(info);
+                        if (callback != null) {
+                            callback.done(true, null);
+                        }
+                    }, connectTime, TimeUnit.MILLISECONDS);
+                }
+                return null;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    /**
+     * @param type return type
+     * @return default value of this type
+     */
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        return 0d;
+    }
+}
@@ -0,0 +1,151 @@
+package com.exaroton.bungee.loadtest;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.exaroton.bungee.ExarotonPlugin;
+import com.exaroton.bungee.ExarotonPluginAPI;
+import com.exaroton.bungee.ServerStatusListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * sends bursts of status updates for all online servers over the websockets
+ * every update changes the player count, so the plugin has to process all of them
+ */
+public class StatusStormTest {
+
+    /**
+     * maximum seconds to wait for the plugin to process the updates
+     */
+    private static final long TIMEOUT = 60;
+
+    /**
+     * fake exaroton API
+     */
+    private final FakeExarotonApi api;
+
+    /**
+     * exaroton plugin
+     */
+    private final ExarotonPlugin plugin;
+
+    /**
+     * number of updates per server
+     */
+    private final int updates;
+
+    /**
+     * @param api     fake exaroton API
+     * @param plugin  exaroton plugin
+     * @param updates number of updates per server
+     */
+    public StatusStormTest(FakeExarotonApi api, ExarotonPlugin plugin, int updates) {
+        this.api = api;
+        this.plugin = plugin;
+        this.updates = Math.max(1, updates);
+    }
+
+    /**
+     * watch all online servers, send the updates and wait until the plugin has the last update of every server
+     * @return report
+     * @throws Exception exception watching the servers or interrupted while waiting
+     */
+    public List<String> run() throws Exception {
+        List<FakeServer> servers = new ArrayList<>();
+        for (FakeServer server : api.getServers()) {
+            if (server.getStatus() == ServerStatus.ONLINE) {
+                servers.add(server);
+            }
+        }
+        if (servers.isEmpty()) {
+            return List.of("No online servers");
+        }
+
+        for (FakeServer server : servers) {
+            Server found = ExarotonPluginAPI.findServer(server.getName(), 10, TimeUnit.SECONDS);
+            ExarotonPluginAPI.watchServer(found);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        while (!this.allSubscribed(servers) && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+
+        ResourceUsage before = ResourceUsage.measure();
+        long requestsBefore = api.getRequestCount();
+        long updatesBefore = api.getStatusUpdates();
+        long start = System.nanoTime();
+        ExecutorService senders = Executors.newFixedThreadPool(Math.min(8, servers.size()));
+        for (FakeServer server : servers) {
+            senders.execute(() -> {
+                for (int i = 1; i < updates; i++) {
+                    server.setPlayers(i % FakeExarotonApi.MAX_PLAYERS);
+                    api.sendStatus(server);
+                }
+                // the last update is the only one with a full server
+                server.setPlayers(FakeExarotonApi.MAX_PLAYERS);
+                api.sendStatus(server);
+            });
+        }
+        senders.shutdown();
+        senders.awaitTermination(TIMEOUT, TimeUnit.SECONDS);
+        double sendSeconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+        boolean processed;
+        while (!(processed = this.allProcessed(servers)) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        long sent = api.getStatusUpdates() - updatesBefore;
+        long requestCount = api.getRequestCount() - requestsBefore;
+        ResourceUsage after = ResourceUsage.measure();
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "%d status updates for %d servers sent in %.2fs (%.0f/s)",
+                sent, servers.size(), sendSeconds, sent / sendSeconds));
+        report.add(String.format(Locale.ROOT, "processed by the plugin after %.2fs (%.0f/s)%s",
+                seconds, sent / seconds, processed ? "" : " (timed out)"));
+        report.add(after.compareTo(before));
+        report.add("API requests during the storm: " + requestCount);
+        return report;
+    }
+
+    /**
+     * @param servers servers
+     * @return does every server have a websocket session
+     */
+    private boolean allSubscribed(List<FakeServer> servers) {
+        for (FakeServer server : servers) {
+            if (!api.hasSession(server.getId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param servers servers
+     * @return did the status listener of every server receive its current player count
+     */
+    private boolean allProcessed(List<FakeServer> servers) {
+        Map<String, Server> watched = new HashMap<>();
+        for (ServerStatusListener listener : plugin.getStatusListeners()) {
+            watched.put(listener.getServer().getId(), listener.getServer());
+        }
+        for (FakeServer server : servers) {
+            Server current = watched.get(server.getId());
+            if (current == null || current.getPlayerInfo() == null
+                    || current.getPlayerInfo().getCount() != server.getPlayers()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package com.exaroton.bungee.loadtest;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.exaroton.bungee.ExarotonPluginAPI;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * simulated players switch to a mix of online and offline servers at the same time
+ * the latency is measured from the switch request until the player is connected
+ */
+public class SwitchLoadTest {
+
+    /**
+     * maximum minutes a player waits for a server
+     */
+    private static final long TIMEOUT = 5;
+
+    /**
+     * fake exaroton API
+     */
+    private final FakeExarotonApi api;
+
+    /**
+     * number of players
+     */
+    private final int players;
+
+    /**
+     * number of target servers, half of them online and half offline
+     */
+    private final int servers;
+
+    /**
+     * milliseconds until a player is connected to a server
+     */
+    private final long connectTime;
+
+    /**
+     * @param api         fake exaroton API
+     * @param players     number of players
+     * @param servers     number of target servers, half of them online and half offline
+     * @param connectTime milliseconds until a player is connected to a server
+     */
+    public SwitchLoadTest(FakeExarotonApi api, int players, int servers, long connectTime) {
+        this.api = api;
+        this.players = Math.max(1, players);
+        this.servers = Math.max(1, servers);
+        this.connectTime = Math.max(0, connectTime);
+    }
+
+    /**
+     * run the load test and wait until all players are connected or timed out
+     * offline servers that were started are stopped again afterwards
+     * @return report
+     * @throws InterruptedException interrupted while waiting
+     */
+    public List<String> run() throws InterruptedException {
+        List<FakeServer> online = new ArrayList<>(), offline = new ArrayList<>();
+        for (FakeServer server : api.getServers()) {
+            List<FakeServer> list = server.getStatus() == ServerStatus.ONLINE ? online : offline;
+            if (list.size() < (servers + 1) / 2) {
+                list.add(server);
+            }
+        }
+        List<FakeServer> targets = new ArrayList<>(online);
+        targets.addAll(offline);
+
+        LatencyRecorder toOnline = new LatencyRecorder();
+        LatencyRecorder toOffline = new LatencyRecorder();
+        CountDownLatch done = new CountDownLatch(players);
+        ScheduledExecutorService connections = Executors.newScheduledThreadPool(2);
+        ExecutorService requests = Executors.newFixedThreadPool(32);
+
+        ResourceUsage before = ResourceUsage.measure();
+        long requestsBefore = api.getRequestCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            String name = "LoadTest" + i;
+            requests.execute(() -> {
+                FakeServer target = targets.get(ThreadLocalRandom.current().nextInt(targets.size()));
+                LatencyRecorder recorder = online.contains(target) ? toOnline : toOffline;
+                long requestedAt = System.nanoTime();
+                ProxiedPlayer player = SimulatedPlayer.create(name, connections, connectTime, info -> {
+                    recorder.record(System.nanoTime() - requestedAt);
+                    done.countDown();
+                });
+                try {
+                    Server server = ExarotonPluginAPI.findServer(target.getName(), 10, TimeUnit.SECONDS);
+                    ExarotonPluginAPI.switchServerAsync(player, server, TIMEOUT, TimeUnit.MINUTES)
+                            .whenComplete((ignored, e) -> {
+                                if (e != null) {
+                                    recorder.error();
+                                    done.countDown();
+                                }
+                            });
+                } catch (Exception e) {
+                    recorder.error();
+                    done.countDown();
+                }
+            });
+        }
+        boolean finished = done.await(TIMEOUT + 1, TimeUnit.MINUTES);
+        double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+        requests.shutdown();
+        connections.shutdown();
+        long requestCount = api.getRequestCount() - requestsBefore;
+        ResourceUsage after = ResourceUsage.measure();
+
+        for (FakeServer server : offline) {
+            api.setStatus(server, ServerStatus.OFFLINE);
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format(Locale.ROOT, "%d players switched to %d online and %d offline servers in %.1fs%s",
+                players, online.size(), offline.size(), seconds, finished ? "" : " (timed out)"));
+        report.add(toOnline.summary("online servers"));
+        report.add(toOffline.summary("offline servers"));
+        report.add(after.compareTo(before));
+        report.add("API requests: " + requestCount + " " + api.getRequests());
+        return report;
+    }
+}
@@ -0,0 +1,183 @@
+package com.exaroton.bungee.loadtest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * server side of a websocket connection (RFC 6455)
+ * only supports what the exaroton API client needs: text messages, pings and closing
+ */
+public class WebSocketSession {
+
+    /**
+     * socket of the connection
+     */
+    private final Socket socket;
+
+    /**
+     * input of the connection after the handshake
+     */
+    private final InputStream in;
+
+    /**
+     * output of the connection
+     */
+    private final OutputStream out;
+
+    /**
+     * id of the server this session subscribed to
+     */
+    private final String serverId;
+
+    /**
+     * is the session closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * @param socket   socket of the connection
+     * @param in       input of the connection after the handshake
+     * @param serverId id of the server this session subscribed to
+     * @throws IOException socket is closed
+     */
+    public WebSocketSession(Socket socket, InputStream in, String serverId) throws IOException {
+        this.socket = socket;
+        this.in = in;
+        this.out = socket.getOutputStream();
+        this.serverId = serverId;
+    }
+
+    /**
+     * @return id of the server this session subscribed to
+     */
+    public String getServerId() {
+        return serverId;
+    }
+
+    /**
+     * @return is the session closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * send a text message
+     * @param message message
+     * @return was the message sent
+     */
+    public boolean send(String message) {
+        return this.sendFrame(0x1, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * read frames until the connection is closed
+     * answers pings and closes
+     */
+    public void read() {
+        try {
+            while (!closed) {
+                int first = in.read();
+                if (first == -1) break;
+                int second = readByte();
+                int opcode = first & 0x0F;
+
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = (readByte() << 8) | readByte();
+                } else if (length == 127) {
+                    length = 0;
+                    for (int i = 0; i < 8; i++) {
+                        length = (length << 8) | readByte();
+                    }
+                }
+                if (length > 1 << 20) {
+                    throw new IOException("Frame too large");
+                }
+
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    for (int i = 0; i < 4; i++) {
+                        mask[i] = (byte) readByte();
+                    }
+                }
+                byte[] payload = new byte[(int) length];
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] = (byte) (readByte() ^ mask[i & 3]);
+                }
+
+                if (opcode == 0x8) {
+                    this.sendFrame(0x8, payload.length >= 2 ? new byte[]{payload[0], payload[1]} : new byte[0]);
+                    break;
+                } else if (opcode == 0x9) {
+                    this.sendFrame(0xA, payload);
+                }
+                // text messages (e.g. starting console streams) are ignored
+            }
+        } catch (IOException ignored) {
+            // the client is gone
+        } finally {
+            this.close();
+        }
+    }
+
+    /**
+     * close the connection without a close frame
+     */
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @param opcode  frame opcode
+     * @param payload frame payload
+     * @return was the frame sent
+     */
+    private synchronized boolean sendFrame(int opcode, byte[] payload) {
+        if (closed) {
+            return false;
+        }
+        try {
+            byte[] header;
+            if (payload.length < 126) {
+                header = new byte[]{(byte) (0x80 | opcode), (byte) payload.length};
+            } else if (payload.length <= 0xFFFF) {
+                header = new byte[]{(byte) (0x80 | opcode), 126, (byte) (payload.length >> 8), (byte) payload.length};
+            } else {
+                header = new byte[10];
+                header[0] = (byte) (0x80 | opcode);
+                header[1] = 127;
+                for (int i = 0; i < 8; i++) {
+                    header[9 - i] = (byte) ((long) payload.length >> (8 * i));
+                }
+            }
+            out.write(header);
+            out.write(payload);
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            this.close();
+            return false;
+        }
+    }
+
+    /**
+     * @return next byte of the input
+     * @throws IOException the connection was closed
+     */
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+}
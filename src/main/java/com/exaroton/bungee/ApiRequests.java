@@ -0,0 +1,429 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * sends requests to the exaroton API through the rate limiter and circuit breaker
+ * requests that failed because the API couldn't be reached are retried with exponential backoff
+ */
+public class ApiRequests {
+
+    /**
+     * API endpoints
+     */
+    public enum Endpoint {
+        SERVERS("servers"),
+        SERVER("server"),
+        START("start"),
+        STOP("stop"),
+        RESTART("restart"),
+        SUBSCRIBE("subscribe");
+
+        /**
+         * name used in metrics
+         */
+        private final String label;
+
+        Endpoint(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return name used in metrics
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * rate limiter
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * circuit breaker
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * maximum number of attempts for retried requests
+     */
+    private final int attempts;
+
+    /**
+     * milliseconds to wait before the first retry
+     */
+    private final long delay;
+
+    /**
+     * maximum milliseconds to wait between attempts
+     */
+    private final long maxDelay;
+
+    /**
+     * number of retried attempts
+     */
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * number of requests that were rejected by the open circuit
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * number of requests that are currently sent
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * endpoint -> request statistics
+     */
+    private final Map<Endpoint, Stats> stats = new EnumMap<>(Endpoint.class);
+
+    /**
+     * @param rateLimiter    rate limiter
+     * @param circuitBreaker circuit breaker
+     * @param logger         logger
+     * @param attempts       maximum number of attempts for retried requests
+     * @param delay          milliseconds to wait before the first retry, doubled after each attempt
+     * @param maxDelay       maximum milliseconds to wait between attempts
+     */
+    public ApiRequests(RateLimiter rateLimiter, CircuitBreaker circuitBreaker, Logger logger, int attempts, long delay, long maxDelay) {
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.logger = logger;
+        this.attempts = Math.max(1, attempts);
+        this.delay = Math.max(0, delay);
+        this.maxDelay = Math.max(this.delay, maxDelay);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new Stats());
+        }
+    }
+
+    /**
+     * send a request that can safely be repeated (e.g. fetching data)
+     * the request is retried if the API can't be reached
+     * the calling thread waits between attempts, tasks on shared executors should use
+     * {@link #callAsync(RateLimiter.Priority, Endpoint, Request, Executor)} instead
+     * @param priority priority of the request
+     * @param endpoint requested endpoint
+     * @param request  request
+     * @return result of the request
+     * @throws APIException exceptions from the API or the circuit is open
+     */
+    public <T> T call(RateLimiter.Priority priority, Endpoint endpoint, Request<T> request) throws APIException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return this.send(priority, endpoint, request);
+            } catch (APIException e) {
+                if (!isTransient(e) || attempt >= attempts || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                    throw e;
+                }
+
+                long wait = backoff(attempt, delay, maxDelay);
+                logger.log(Level.FINE, "Request to the exaroton API failed, retrying in " + wait + "ms", e);
+                retries.increment();
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * send a request that can safely be repeated without blocking a thread between attempts
+     * each attempt runs on the executor, retries are scheduled after the backoff delay
+     * @param priority priority of the request
+     * @param endpoint requested endpoint
+     * @param request  request
+     * @param executor executor for the attempts
+     * @return future that completes with the result of the request
+     */
+    public <T> CompletableFuture<T> callAsync(RateLimiter.Priority priority, Endpoint endpoint, Request<T> request, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        this.attempt(priority, endpoint, request, executor, 1, future);
+        return future;
+    }
+
+    /**
+     * @param priority priority of the request
+     * @param endpoint requested endpoint
+     * @param request  request
+     * @param executor executor for the attempts
+     * @param attempt  number of this attempt (starting at 1)
+     * @param future   future of the request
+     */
+    private <T> void attempt(RateLimiter.Priority priority, Endpoint endpoint, Request<T> request, Executor executor,
+                             int attempt, CompletableFuture<T> future) {
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(this.send(priority, endpoint, request));
+                } catch (APIException e) {
+                    if (!isTransient(e) || attempt >= attempts || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                        future.completeExceptionally(e);
+                        return;
+                    }
+
+                    long wait = backoff(attempt, delay, maxDelay);
+                    logger.log(Level.FINE, "Request to the exaroton API failed, retrying in " + wait + "ms", e);
+                    retries.increment();
+                    this.attempt(priority, endpoint, request,
+                            CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS, executor), attempt + 1, future);
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * send a request that changes the state of a server (e.g. starting it)
+     * the request is not retried because it might have reached the API before it failed
+     * @param priority priority of the request
+     * @param endpoint requested endpoint
+     * @param action   request
+     * @throws APIException exceptions from the API or the circuit is open
+     */
+    public void run(RateLimiter.Priority priority, Endpoint endpoint, Action action) throws APIException {
+        this.send(priority, endpoint, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * @param priority priority of the request
+     * @param endpoint requested endpoint
+     * @param request  request
+     * @return result of the request
+     * @throws APIException exceptions from the API or the circuit is open
+     */
+    private <T> T send(RateLimiter.Priority priority, Endpoint endpoint, Request<T> request) throws APIException {
+        // don't wait for the rate limiter if the request would be rejected anyway
+        if (circuitBreaker.isRejecting()) {
+            throw this.reject();
+        }
+
+        rateLimiter.acquireUninterruptibly(priority);
+        // the trial request is only granted once the request can actually be sent
+        if (!circuitBreaker.tryAcquire()) {
+            throw this.reject();
+        }
+
+        Stats stats = this.stats.get(endpoint);
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        boolean success = false, reached = false;
+        try {
+            T result = request.send();
+            success = true;
+            return result;
+        } catch (APIException e) {
+            // the API answered, it just didn't like the request
+            reached = !isTransient(e);
+            throw e;
+        } finally {
+            // always record the outcome, otherwise an error would leave the trial request running forever
+            if (success || reached) {
+                circuitBreaker.onSuccess();
+            } else {
+                circuitBreaker.onFailure();
+            }
+            stats.record(System.nanoTime() - start, success);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return exception for a request that was rejected because the circuit is open
+     */
+    private APIException reject() {
+        rejected.increment();
+        return new APIException("The exaroton API is unavailable, trying again in "
+                + Math.max(1, circuitBreaker.getRemainingOpenTime() / 1000) + "s");
+    }
+
+    /**
+     * @return is the API currently considered unavailable
+     */
+    public boolean isUnavailable() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    /**
+     * @return rate limiter
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @return circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * @return number of requests that are currently sent
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of retried attempts
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * @return number of requests that were rejected by the open circuit
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @param endpoint API endpoint
+     * @return request statistics of this endpoint
+     */
+    public Stats getStats(Endpoint endpoint) {
+        return stats.get(endpoint);
+    }
+
+    /**
+     * did this request fail because the API couldn't be reached
+     * @param e exception from the API
+     * @return can the request be retried
+     */
+    public static boolean isTransient(APIException e) {
+        return e.getCause() instanceof IOException;
+    }
+
+    /**
+     * exponential backoff with jitter
+     * @param attempt  number of the failed attempt (starting at 1)
+     * @param delay    delay after the first attempt
+     * @param maxDelay maximum delay
+     * @return delay between half and the full exponential delay
+     */
+    public static long backoff(int attempt, long delay, long maxDelay) {
+        long exponential = Math.min(maxDelay, delay << Math.min(attempt - 1, 30));
+        if (exponential <= 1) {
+            return Math.max(0, exponential);
+        }
+        long half = exponential / 2;
+        return half + ThreadLocalRandom.current().nextLong(exponential - half + 1);
+    }
+
+    /**
+     * number and duration of requests to an endpoint
+     */
+    public static class Stats {
+
+        /**
+         * number of requests
+         */
+        private final LongAdder count = new LongAdder();
+
+        /**
+         * number of failed requests
+         */
+        private final LongAdder failures = new LongAdder();
+
+        /**
+         * total duration in nanoseconds
+         */
+        private final LongAdder totalTime = new LongAdder();
+
+        /**
+         * longest duration in nanoseconds
+         */
+        private final AtomicLong maxTime = new AtomicLong();
+
+        /**
+         * @param duration duration in nanoseconds
+         * @param success  did the request succeed
+         */
+        private void record(long duration, boolean success) {
+            count.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalTime.add(duration);
+            maxTime.accumulateAndGet(duration, Math::max);
+        }
+
+        /**
+         * @return number of requests
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return number of failed requests
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return total duration in seconds
+         */
+        public double getTotalSeconds() {
+            return totalTime.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+
+        /**
+         * @return longest duration in seconds
+         */
+        public double getMaxSeconds() {
+            return maxTime.get() / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * request to the exaroton API
+     */
+    @FunctionalInterface
+    public interface Request<T> {
+        T send() throws APIException;
+    }
+
+    /**
+     * request to the exaroton API without a result
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws APIException;
+    }
+}
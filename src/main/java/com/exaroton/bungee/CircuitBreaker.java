@@ -0,0 +1,174 @@
+package com.exaroton.bungee;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * stops requests to the exaroton API after repeated failures
+ * after a pause a single trial request is let through, if it succeeds requests are sent normally again
+ */
+public class CircuitBreaker {
+
+    /**
+     * circuit state
+     */
+    public enum State {
+        /**
+         * requests are sent normally
+         */
+        CLOSED,
+
+        /**
+         * requests fail immediately
+         */
+        OPEN,
+
+        /**
+         * a single trial request is sent
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * number of failures in a row after which the circuit opens
+     */
+    private final int threshold;
+
+    /**
+     * time in nanoseconds the circuit stays open
+     */
+    private final long openTime;
+
+    /**
+     * time source in nanoseconds, {@link System#nanoTime()} outside of tests
+     */
+    private final LongSupplier clock;
+
+    /**
+     * current state
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * number of failures in a row
+     */
+    private int failures = 0;
+
+    /**
+     * time of the clock when the circuit was opened
+     */
+    private long openedAt;
+
+    /**
+     * is the trial request running
+     */
+    private boolean trialRunning = false;
+
+    /**
+     * number of times the circuit was opened
+     */
+    private long openCount = 0;
+
+    /**
+     * @param threshold number of failures in a row after which the circuit opens
+     * @param openTime  seconds the circuit stays open
+     */
+    public CircuitBreaker(int threshold, long openTime) {
+        this(threshold, openTime, System::nanoTime);
+    }
+
+    /**
+     * @param threshold number of failures in a row after which the circuit opens
+     * @param openTime  seconds the circuit stays open
+     * @param clock     time source in nanoseconds
+     */
+    CircuitBreaker(int threshold, long openTime, LongSupplier clock) {
+        this.threshold = Math.max(1, threshold);
+        this.openTime = TimeUnit.SECONDS.toNanos(Math.max(1, openTime));
+        this.clock = clock;
+    }
+
+    /**
+     * @return can a request be sent now
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openTime) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialRunning = true;
+                return true;
+            default:
+                if (trialRunning) {
+                    return false;
+                }
+                trialRunning = true;
+                return true;
+        }
+    }
+
+    /**
+     * check if a request would be rejected without changing the state
+     * @return is the circuit open or a trial request already running
+     */
+    public synchronized boolean isRejecting() {
+        switch (state) {
+            case CLOSED:
+                return false;
+            case OPEN:
+                return clock.getAsLong() - openedAt < openTime;
+            default:
+                return trialRunning;
+        }
+    }
+
+    /**
+     * the API could be reached
+     */
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialRunning = false;
+    }
+
+    /**
+     * the API could not be reached
+     */
+    public synchronized void onFailure() {
+        failures++;
+        trialRunning = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= threshold)) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            openCount++;
+        }
+    }
+
+    /**
+     * @return current state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return milliseconds until a trial request is let through, 0 if the circuit isn't open
+     */
+    public synchronized long getRemainingOpenTime() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(openTime - (clock.getAsLong() - openedAt)));
+    }
+
+    /**
+     * @return number of times the circuit was opened
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+}
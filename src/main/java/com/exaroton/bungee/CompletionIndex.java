@@ -0,0 +1,340 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * immutable prefix index for tab completions
+ * contains the names, addresses and ids of all servers and the bungee server names
+ * sorted by key and bucketed by server status
+ */
+public class CompletionIndex {
+
+    /**
+     * index without any servers
+     */
+    public static final CompletionIndex EMPTY = new CompletionIndex(null, Collections.emptyMap());
+
+    /**
+     * server index this completion index was built from
+     */
+    private final ServerIndex index;
+
+    /**
+     * bungee server name -> exaroton address
+     */
+    private final Map<String, String> aliases;
+
+    /**
+     * status of each server slot when its entries were bucketed
+     */
+    private final int[] statuses;
+
+    /**
+     * server names, addresses and ids
+     */
+    private final Keys servers;
+
+    /**
+     * bungee server names
+     */
+    private final Keys bungeeServers;
+
+    /**
+     * server slot -> bungee server names of that server
+     */
+    private final Map<Integer, Entry[]> bungeeServersBySlot;
+
+    /**
+     * @param index   server index or null
+     * @param aliases bungee server name -> exaroton address
+     */
+    public CompletionIndex(ServerIndex index, Map<String, String> aliases) {
+        this.index = index;
+        this.aliases = aliases;
+
+        int size = index == null ? 0 : index.size();
+        this.statuses = new int[size];
+        List<Entry> servers = new ArrayList<>(size * 3);
+        for (int slot = 0; slot < size; slot++) {
+            Server server = index.get(slot);
+            statuses[slot] = server.getStatus();
+            servers.addAll(Arrays.asList(Entry.of(server, slot)));
+        }
+        this.servers = new Keys(servers, statuses);
+
+        // resolve all bungee server names against this server index once
+        List<Entry> bungeeServers = new ArrayList<>(aliases.size());
+        Map<Integer, List<Entry>> bungeeServersBySlot = new HashMap<>();
+        for (Map.Entry<String, String> alias : aliases.entrySet()) {
+            Server server = index == null ? null : index.find(alias.getValue());
+            int slot = server == null ? -1 : index.slotOf(server.getId());
+            Entry entry = new Entry(alias.getKey(), slot);
+            bungeeServers.add(entry);
+            if (slot >= 0) {
+                bungeeServersBySlot.computeIfAbsent(slot, s -> new ArrayList<>()).add(entry);
+            }
+        }
+        this.bungeeServers = new Keys(bungeeServers, statuses);
+        this.bungeeServersBySlot = new HashMap<>();
+        for (Map.Entry<Integer, List<Entry>> entry : bungeeServersBySlot.entrySet()) {
+            this.bungeeServersBySlot.put(entry.getKey(), entry.getValue().toArray(new Entry[0]));
+        }
+    }
+
+    private CompletionIndex(CompletionIndex previous, int[] statuses, Keys servers, Keys bungeeServers) {
+        this.index = previous.index;
+        this.aliases = previous.aliases;
+        this.bungeeServersBySlot = previous.bungeeServersBySlot;
+        this.statuses = statuses;
+        this.servers = servers;
+        this.bungeeServers = bungeeServers;
+    }
+
+    /**
+     * @return server index this completion index was built from or null
+     */
+    public ServerIndex getServerIndex() {
+        return index;
+    }
+
+    /**
+     * move a server and its bungee server names to the bucket of its current status
+     * @param index  server index containing the updated server
+     * @param server updated server
+     * @return updated completion index
+     */
+    public CompletionIndex update(ServerIndex index, Server server) {
+        if (index != this.index) {
+            return new CompletionIndex(index, aliases);
+        }
+
+        int slot = index.slotOf(server.getId());
+        if (slot < 0 || statuses[slot] == server.getStatus()) {
+            return this;
+        }
+
+        int oldStatus = statuses[slot], newStatus = server.getStatus();
+        int[] statuses = this.statuses.clone();
+        statuses[slot] = newStatus;
+
+        Keys bungeeServers = this.bungeeServers;
+        Entry[] bungeeServerEntries = bungeeServersBySlot.get(slot);
+        if (bungeeServerEntries != null) {
+            bungeeServers = bungeeServers.move(slot, bungeeServerEntries, oldStatus, newStatus);
+        }
+        return new CompletionIndex(this, statuses,
+                servers.move(slot, Entry.of(server, slot), oldStatus, newStatus),
+                bungeeServers);
+    }
+
+    /**
+     * find server names, addresses and ids starting with the query
+     * @param query  partial server name, address or id
+     * @param status required server status or null
+     * @return matching keys
+     */
+    public List<String> find(String query, Integer status) {
+        return this.find(query, status, server -> true);
+    }
+
+    /**
+     * find server names, addresses and ids starting with the query
+     * @param query  partial server name, address or id
+     * @param status required server status or null
+     * @param filter filter for the matching servers
+     * @return matching keys
+     */
+    public List<String> find(String query, Integer status, Predicate<Server> filter) {
+        List<String> result = new ArrayList<>();
+        servers.find(query, status, slot -> filter.test(index.get(slot)), result);
+        return result;
+    }
+
+    /**
+     * find bungee server names starting with the query
+     * if a status is required, bungee servers that don't belong to a known exaroton server are excluded
+     * @param query  partial server name
+     * @param status required server status or null
+     * @return matching bungee server names
+     */
+    public List<String> findBungeeServers(String query, Integer status) {
+        List<String> result = new ArrayList<>();
+        bungeeServers.find(query, status, slot -> true, result);
+        return result;
+    }
+
+    /**
+     * sorted keys with status buckets
+     */
+    private static class Keys {
+
+        /**
+         * all entries sorted by key
+         */
+        private final Entry[] all;
+
+        /**
+         * status -> entries of servers with that status sorted by key
+         */
+        private final Map<Integer, Entry[]> byStatus;
+
+        /**
+         * @param entries  unsorted entries
+         * @param statuses status of each server slot
+         */
+        private Keys(List<Entry> entries, int[] statuses) {
+            this.all = entries.toArray(new Entry[0]);
+            Arrays.sort(all);
+
+            Map<Integer, List<Entry>> byStatus = new HashMap<>();
+            for (Entry entry : all) {
+                if (entry.slot >= 0) {
+                    byStatus.computeIfAbsent(statuses[entry.slot], status -> new ArrayList<>()).add(entry);
+                }
+            }
+            this.byStatus = new HashMap<>();
+            for (Map.Entry<Integer, List<Entry>> bucket : byStatus.entrySet()) {
+                this.byStatus.put(bucket.getKey(), bucket.getValue().toArray(new Entry[0]));
+            }
+        }
+
+        private Keys(Entry[] all, Map<Integer, Entry[]> byStatus) {
+            this.all = all;
+            this.byStatus = byStatus;
+        }
+
+        /**
+         * move the entries of a server slot to another status bucket
+         * @param slot      server slot
+         * @param entries   entries of the server slot
+         * @param oldStatus previous status
+         * @param newStatus current status
+         * @return updated keys
+         */
+        private Keys move(int slot, Entry[] entries, int oldStatus, int newStatus) {
+            Map<Integer, Entry[]> byStatus = new HashMap<>(this.byStatus);
+            byStatus.put(oldStatus, without(byStatus.get(oldStatus), slot));
+            byStatus.put(newStatus, with(byStatus.get(newStatus), entries));
+            return new Keys(all, byStatus);
+        }
+
+        /**
+         * @param query  key prefix
+         * @param status required server status or null
+         * @param filter filter for the server slot
+         * @param result list to add matching keys to
+         */
+        private void find(String query, Integer status, Predicate<Integer> filter, List<String> result) {
+            Entry[] entries = status == null ? all : byStatus.get(status);
+            if (entries == null) {
+                return;
+            }
+
+            for (int i = lowerBound(entries, query); i < entries.length && entries[i].key.startsWith(query); i++) {
+                if (entries[i].slot < 0 || filter.test(entries[i].slot)) {
+                    result.add(entries[i].key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param bucket sorted entries or null
+     * @param slot   server slot to remove
+     * @return sorted entries without the server
+     */
+    private static Entry[] without(Entry[] bucket, int slot) {
+        if (bucket == null) {
+            return new Entry[0];
+        }
+        Entry[] result = new Entry[bucket.length];
+        int size = 0;
+        for (Entry entry : bucket) {
+            if (entry.slot != slot) {
+                result[size++] = entry;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * @param bucket sorted entries or null
+     * @param added  entries to add
+     * @return sorted entries including the added entries
+     */
+    private static Entry[] with(Entry[] bucket, Entry[] added) {
+        if (bucket == null) {
+            bucket = new Entry[0];
+        }
+        added = added.clone();
+        Arrays.sort(added);
+        Entry[] result = new Entry[bucket.length + added.length];
+        int i = 0, j = 0, k = 0;
+        while (i < bucket.length || j < added.length) {
+            if (j == added.length || (i < bucket.length && bucket[i].compareTo(added[j]) <= 0)) {
+                result[k++] = bucket[i++];
+            } else {
+                result[k++] = added[j++];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param entries sorted entries
+     * @param query   search query
+     * @return position of the first entry that is not smaller than the query
+     */
+    private static int lowerBound(Entry[] entries, String query) {
+        int low = 0, high = entries.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle].key.compareTo(query) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+
+        /**
+         * server name, address, id or bungee server name
+         */
+        private final String key;
+
+        /**
+         * server slot in the server index or -1 if unknown
+         */
+        private final int slot;
+
+        private Entry(String key, int slot) {
+            this.key = key;
+            this.slot = slot;
+        }
+
+        /**
+         * @param server server
+         * @param slot   server slot in the server index
+         * @return entries for the server name, address and id
+         */
+        private static Entry[] of(Server server, int slot) {
+            return new Entry[]{
+                    new Entry(server.getName(), slot),
+                    new Entry(server.getAddress(), slot),
+                    new Entry(server.getId(), slot)
+            };
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = key.compareTo(other.key);
+            return result != 0 ? result : Integer.compare(slot, other.slot);
+        }
+    }
+}
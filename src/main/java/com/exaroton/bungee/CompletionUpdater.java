@@ -0,0 +1,59 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * keeps the completion index in sync with the server cache
+ * full refreshes rebuild the index, single updates only move the entries of the updated server
+ * refreshes and updates can be reported concurrently and out of order,
+ * so both always work on the latest server list inside a single atomic update of the completion index
+ */
+class CompletionUpdater implements ServerCache.Listener {
+
+    /**
+     * current completion index
+     */
+    private final AtomicReference<CompletionIndex> completions;
+
+    /**
+     * bungee server name -> exaroton address
+     */
+    private final Map<String, String> aliases;
+
+    /**
+     * latest server list, e.g. {@link ServerCache#peek()}
+     */
+    private final Supplier<ServerIndex> latest;
+
+    /**
+     * @param completions current completion index
+     * @param aliases     bungee server name -> exaroton address
+     * @param latest      latest server list, e.g. {@link ServerCache#peek()}
+     */
+    CompletionUpdater(AtomicReference<CompletionIndex> completions, Map<String, String> aliases, Supplier<ServerIndex> latest) {
+        this.completions = completions;
+        this.aliases = aliases;
+        this.latest = latest;
+    }
+
+    @Override
+    public void refreshed(ServerIndex index) {
+        completions.updateAndGet(completions -> {
+            ServerIndex latest = this.latest.get();
+            return latest == null || completions.getServerIndex() == latest ? completions : new CompletionIndex(latest, aliases);
+        });
+    }
+
+    @Override
+    public void updated(ServerIndex index, Server server) {
+        completions.updateAndGet(completions -> {
+            // the index of the update might have been replaced by a refresh in the meantime
+            ServerIndex latest = this.latest.get();
+            return latest == null ? completions : completions.update(latest, server);
+        });
+    }
+}
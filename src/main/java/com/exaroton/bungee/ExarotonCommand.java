@@ -50,6 +50,7 @@ public class ExarotonCommand extends Command implements TabExecutor {
         this.registerCommand(new AddServer(plugin));
         this.registerCommand(new RemoveServer(plugin));
         this.registerCommand(new SwitchServer(plugin));
+        this.registerCommand(new ShowStats(plugin));
     }
 
     /**
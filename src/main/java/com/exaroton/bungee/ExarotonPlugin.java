@@ -4,8 +4,11 @@ import com.exaroton.api.APIException;
 import com.exaroton.api.ExarotonClient;
 import com.exaroton.api.server.Server;
 import com.exaroton.api.server.ServerStatus;
+import com.exaroton.bungee.events.ServerAddedEvent;
+import com.exaroton.bungee.events.ServerRemovedEvent;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.plugin.Plugin;
 import net.md_5.bungee.api.plugin.PluginManager;
 import net.md_5.bungee.config.Configuration;
@@ -15,20 +18,41 @@ import net.md_5.bungee.config.YamlConfiguration;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 public class ExarotonPlugin extends Plugin {
 
+    /**
+     * is the current thread a thread of the plugin executor
+     */
+    private static final ThreadLocal<Boolean> WORKER_THREAD = ThreadLocal.withInitial(() -> false);
+
     /**
      * exaroton API client
      */
@@ -52,7 +76,98 @@ public class ExarotonPlugin extends Plugin {
     /**
      * server cache
      */
-    private Server[] serverCache;
+    private ServerCache serverCache;
+
+    /**
+     * executor for asynchronous tasks, shut down when the plugin is disabled
+     */
+    private ExecutorService executor;
+
+    /**
+     * single thread that fetches the server list in the background
+     * separate from the executor, so tasks waiting for the server list never wait for a free thread
+     */
+    private ExecutorService fetchExecutor;
+
+    /**
+     * runs tasks for the same server one after another
+     */
+    private SerialExecutor serverExecutor;
+
+    /**
+     * limits, retries and circuit breaker for requests to the exaroton API
+     */
+    private ApiRequests apiRequests;
+
+    /**
+     * server name -> number of failed attempts to watch the server
+     */
+    private final Map<String, Integer> failedWatches = new ConcurrentHashMap<>();
+
+    /**
+     * limits the number of servers that are watched or started at the same time during startup
+     */
+    private Semaphore startupPermits;
+
+    /**
+     * startup tasks waiting for a free slot
+     */
+    private final Queue<Runnable> waitingStartupTasks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * last known state of the watched servers
+     */
+    private ServerSnapshot snapshot;
+
+    /**
+     * is a snapshot save scheduled
+     */
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+    /**
+     * players waiting for servers to go online
+     */
+    private SwitchQueue switchQueue;
+
+    /**
+     * resolved hosts and constructed server infos
+     */
+    private ServerInfoCache serverInfoCache;
+
+    /**
+     * time from a switch request until the player is connected
+     */
+    private final LatencyHistogram switchLatency = new LatencyHistogram();
+
+    /**
+     * metrics of the plugin components
+     */
+    private Metrics metrics;
+
+    /**
+     * optional HTTP endpoint for the metrics
+     */
+    private MetricsServer metricsServer;
+
+    /**
+     * name of the metrics MBean if it's registered
+     */
+    private ObjectName metricsName;
+
+    /**
+     * stops empty servers or null if idle-stop is disabled
+     */
+    private IdleStopper idleStopper;
+
+    /**
+     * server pools
+     */
+    private ServerPools serverPools;
+
+    /**
+     * prefix index for tab completions
+     */
+    private final AtomicReference<CompletionIndex> completions = new AtomicReference<>(CompletionIndex.EMPTY);
 
     /**
      * exaroton servers from bungee config
@@ -60,11 +175,28 @@ public class ExarotonPlugin extends Plugin {
      */
     private final Map<String, String> bungeeServers = new HashMap<>();
 
+    /**
+     * start offline servers from the bungee config when players connect to them
+     */
+    private boolean startOnConnect = false;
+
+    /**
+     * exaroton servers from bungee config
+     * address -> name
+     */
+    private final Map<String, String> bungeeServerNames = new HashMap<>();
+
+    /**
+     * servers registered from the snapshot that haven't been confirmed by the API yet
+     * their {@link ServerAddedEvent} is called once the exaroton server is known
+     */
+    private final Set<String> warmStarted = ConcurrentHashMap.newKeySet();
+
     /**
      * server status listeners
      * server id -> status listener
      */
-    private final HashMap<String, ServerStatusListener> statusListeners = new HashMap<>();
+    private final Map<String, ServerStatusListener> statusListeners = new ConcurrentHashMap<>();
 
     @Override
     public void onEnable() {
@@ -76,17 +208,213 @@ public class ExarotonPlugin extends Plugin {
             logger.log(Level.SEVERE, "Unable to load config file!", e);
             return;
         }
+        this.executor = this.createExecutor(config.getInt("threads", 16));
+        this.serverExecutor = new SerialExecutor(executor, logger);
+        this.apiRequests = new ApiRequests(
+                new RateLimiter(config.getDouble("rate-limit.requests-per-second", 5), config.getInt("rate-limit.burst", 10)),
+                new CircuitBreaker(config.getInt("circuit-breaker.failures", 5), config.getLong("circuit-breaker.open-time", 30)),
+                logger,
+                config.getInt("retry.attempts", 3),
+                config.getLong("retry.delay", 500),
+                config.getLong("retry.max-delay", 10000));
         if (this.createExarotonClient()) {
+            this.startupPermits = new Semaphore(Math.max(1, config.getInt("startup.concurrency", 8)));
+            this.serverInfoCache = new ServerInfoCache(this.getProxy(), executor, config.getInt("dns-cache-ttl", 60));
+            this.switchQueue = new SwitchQueue(this,
+                    config.getInt("switch-queue.players-per-second", 10),
+                    config.getLong("switch-queue.timeout", 600));
+            this.serverPools = new ServerPools(this, config.getSection("pools"));
             this.registerCommands();
+            this.registerListeners();
+            this.startMetrics();
+            this.loadSnapshot();
             this.runAsyncTasks();
+            this.startIdleStopper();
             ExarotonPluginAPI.setPlugin(this);
         }
     }
 
     @Override
     public void onDisable() {
+        if (this.executor == null) return;
+        this.stopMetrics();
+        long deadline = this.getShutdownDeadline();
         if (this.exarotonClient != null) {
-            this.autoStopServers();
+            this.saveSnapshot();
+            this.autoStopServers(deadline);
+            this.stopListeningToAll(deadline);
+        }
+
+        if (this.fetchExecutor != null) {
+            fetchExecutor.shutdownNow();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                logger.warning("Some tasks were still running when the plugin was disabled");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * check for empty servers every 30 seconds if idle-stop is enabled
+     */
+    private void startIdleStopper() {
+        if (!config.getBoolean("idle-stop.enabled", false)) return;
+        this.idleStopper = new IdleStopper(this,
+                config.getLong("idle-stop.empty-time", 15),
+                config.getLong("idle-stop.grace-time", 5),
+                config.getStringList("idle-stop.exclude"));
+        this.getProxy().getScheduler().schedule(this, () -> {
+            if (!executor.isShutdown()) {
+                idleStopper.check();
+            }
+        }, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return stops empty servers or null if idle-stop is disabled
+     */
+    public IdleStopper getIdleStopper() {
+        return idleStopper;
+    }
+
+    /**
+     * register the metrics MBean and start the HTTP endpoint if they are enabled
+     */
+    private void startMetrics() {
+        this.metrics = new Metrics(apiRequests, serverCache, serverExecutor, switchQueue, this.getStatusListeners(), switchLatency);
+
+        if (config.getBoolean("metrics.jmx", true)) {
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                ObjectName name = new ObjectName("com.exaroton.bungee:type=Metrics");
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+                server.registerMBean(metrics, name);
+                this.metricsName = name;
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "Failed to register metrics MBean", e);
+            }
+        }
+
+        if (config.getBoolean("metrics.http.enabled", false)) {
+            try {
+                this.metricsServer = new MetricsServer(metrics,
+                        config.getString("metrics.http.host", "127.0.0.1"),
+                        config.getInt("metrics.http.port", 9225));
+                metricsServer.start();
+                logger.info("Serving metrics on http://" + metricsServer.getAddress().getHostString() + ":"
+                        + metricsServer.getAddress().getPort() + "/metrics");
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Failed to start metrics endpoint", e);
+            }
+        }
+    }
+
+    /**
+     * stop the metrics endpoint and unregister the MBean
+     */
+    private void stopMetrics() {
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                logger.log(Level.FINE, "Failed to unregister metrics MBean", e);
+            }
+            metricsName = null;
+        }
+    }
+
+    /**
+     * @return time from a switch request until the player is connected
+     */
+    public LatencyHistogram getSwitchLatency() {
+        return switchLatency;
+    }
+
+    /**
+     * @return status listeners of all watched servers
+     */
+    public Collection<ServerStatusListener> getStatusListeners() {
+        return Collections.unmodifiableCollection(statusListeners.values());
+    }
+
+    /**
+     * @return metrics of the plugin components or null if the plugin isn't enabled
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * create the executor for asynchronous tasks
+     * idle threads are stopped after a minute
+     * @param threads maximum number of threads
+     * @return executor
+     */
+    private ExecutorService createExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads),
+                1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(() -> {
+                WORKER_THREAD.set(true);
+                task.run();
+            }, "exaroton-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * create the executor for background server list requests
+     * only one request runs at a time, so a single thread is enough
+     * @return executor
+     */
+    private ExecutorService createFetchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "exaroton-server-list");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} at which shutting down the plugin should be finished
+     */
+    private long getShutdownDeadline() {
+        long timeout = config == null ? 30 : config.getLong("auto-stop.timeout", 30);
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, timeout));
+    }
+
+    /**
+     * wait for this future until the deadline has passed
+     * @param future   future to wait for
+     * @param deadline {@link System#nanoTime()} after which to stop waiting
+     * @return did the future complete successfully before the deadline
+     */
+    private boolean awaitUntil(CompletableFuture<?> future, long deadline) {
+        try {
+            future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
         }
     }
 
@@ -126,7 +454,9 @@ public class ExarotonPlugin extends Plugin {
         for (String name : servers.getKeys()) {
             String address = servers.getString(name + ".address");
             if (address.matches(".*\\.exaroton\\.me(:\\d+)?")) {
-                this.bungeeServers.put(name, address.replaceAll(":\\d+$", ""));
+                address = address.replaceAll(":\\d+$", "");
+                this.bungeeServers.put(name, address);
+                this.bungeeServerNames.putIfAbsent(address, name);
             }
         }
     }
@@ -156,17 +486,110 @@ public class ExarotonPlugin extends Plugin {
      * @return was the client successfully created
      */
     public boolean createExarotonClient() {
-        String apiToken = this.config.getString("apiToken");
+        // system properties override the config, so tests can point a proxy at a stand-in without editing it
+        String apiToken = System.getProperty("exaroton.apiToken", this.config.getString("apiToken"));
         if (apiToken == null || apiToken.length() == 0 || apiToken.equals("example-token")) {
             logger.log(Level.SEVERE, "Invalid API Token specified!");
             return false;
         }
         else {
             this.exarotonClient = new ExarotonClient(apiToken);
+            String apiUrl = System.getProperty("exaroton.api-url", this.config.getString("api-url", ""));
+            if (apiUrl.length() > 0 && !this.setApiUrl(apiUrl)) {
+                this.exarotonClient = null;
+                return false;
+            }
+            this.fetchExecutor = this.createFetchExecutor();
+            this.serverCache = new ServerCache(exarotonClient,
+                    fetchExecutor,
+                    apiRequests,
+                    logger,
+                    config.getInt("server-cache.refresh-after", 30),
+                    config.getInt("server-cache.ttl", 120));
+            this.completions.set(new CompletionIndex(null, Collections.unmodifiableMap(bungeeServers)));
+            this.serverCache.setListener(new CompletionUpdater(completions, Collections.unmodifiableMap(bungeeServers), serverCache::peek));
             return true;
         }
     }
 
+    /**
+     * send requests to another URL than the exaroton API, e.g. a local stand-in for testing
+     * @param apiUrl base URL of the API (e.g. http://127.0.0.1:8380/v1/)
+     * @return is the URL valid
+     */
+    private boolean setApiUrl(String apiUrl) {
+        URI uri;
+        try {
+            uri = new URI(apiUrl);
+        } catch (URISyntaxException e) {
+            logger.log(Level.SEVERE, "Invalid API URL specified!", e);
+            return false;
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            logger.log(Level.SEVERE, "Invalid API URL specified!");
+            return false;
+        }
+
+        String path = uri.getPath() == null || uri.getPath().isEmpty() ? "/" : uri.getPath();
+        exarotonClient.setProtocol(uri.getScheme())
+                .setHost(uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort())
+                .setBasePath(path.endsWith("/") ? path : path + "/");
+        logger.warning("Using the exaroton API at " + apiUrl);
+        return true;
+    }
+
+    /**
+     * @return executor for asynchronous tasks
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return is the calling thread a thread of the plugin executor
+     */
+    public boolean isWorkerThread() {
+        return WORKER_THREAD.get();
+    }
+
+    /**
+     * all changes to the state of a server (proxy server list, status listener, waiting players)
+     * should be made through this executor to apply them in order
+     * @return executor that runs tasks for the same server one after another
+     */
+    public SerialExecutor getServerExecutor() {
+        return serverExecutor;
+    }
+
+    /**
+     * all requests to the exaroton API should be sent through this
+     * @return rate limiter, retries and circuit breaker for requests to the exaroton API
+     */
+    public ApiRequests getApiRequests() {
+        return apiRequests;
+    }
+
+    /**
+     * @return rate limiter for requests to the exaroton API
+     */
+    public RateLimiter getRateLimiter() {
+        return apiRequests.getRateLimiter();
+    }
+
+    /**
+     * @return players waiting for servers to go online
+     */
+    public SwitchQueue getSwitchQueue() {
+        return switchQueue;
+    }
+
+    /**
+     * @return resolved hosts and constructed server infos
+     */
+    public ServerInfoCache getServerInfoCache() {
+        return serverInfoCache;
+    }
+
     /**
      * register commands
      */
@@ -175,47 +598,140 @@ public class ExarotonPlugin extends Plugin {
         pluginManager.registerCommand(this, new ExarotonCommand(this));
     }
 
+    /**
+     * register event listeners
+     */
+    private void registerListeners() {
+        this.startOnConnect = config.getBoolean("start-on-connect", false);
+        if (startOnConnect || !serverPools.getNames().isEmpty()) {
+            this.registerPools();
+            this.getProxy().getPluginManager().registerListener(this, new ServerConnectListener(this, startOnConnect));
+        }
+    }
+
+    /**
+     * add a placeholder server for each pool to the proxy, so pools can be used with /server, forced hosts and priorities
+     * connections to the placeholder are redirected to a member of the pool
+     */
+    private void registerPools() {
+        for (String pool : serverPools.getNames()) {
+            if (this.getProxy().getServers().containsKey(pool)) {
+                logger.warning("Pool " + pool + " has the same name as a server in the bungee config. Connections to this server are sent to the pool.");
+                continue;
+            }
+            this.getProxy().getServers().put(pool, this.getProxy().constructServerInfo(pool,
+                    InetSocketAddress.createUnresolved(pool, 25565), "exaroton server pool", false));
+        }
+    }
+
+    /**
+     * @return server pools
+     */
+    public ServerPools getServerPools() {
+        return serverPools;
+    }
+
     /**
      * update server cache to provided servers
      * @return exaroton servers
      * @throws APIException API exceptions
      */
     public Server[] fetchServers() throws APIException {
-        this.getProxy().getScheduler().schedule(this, () -> this.serverCache = null, 1, TimeUnit.MINUTES);
-        return this.serverCache = exarotonClient.getServers();
+        return this.serverCache.refresh().getServers();
     }
 
     /**
      * find a server
      * if a server can't be uniquely identified then the id will be preferred
+     * servers that are watched are kept up to date by their status listener,
+     * other servers are requested again if force is set
      * @param query server name, address or id
-     * @param force skip cache
+     * @param force request the current state of the server
      * @return found server or null
      * @throws APIException exceptions from the API
      */
     public Server findServer(String query, boolean force) throws APIException {
-        if (bungeeServers.containsKey(query)) {
-            query = bungeeServers.get(query);
-        }
-        final String finalQuery = query;
+        return this.findServer(query, force, RateLimiter.Priority.DEFAULT);
+    }
 
-        Server[] servers = force ? fetchServers() : getServerCache();
+    /**
+     * find a server
+     * if a server can't be uniquely identified then the id will be preferred
+     * servers that are watched are kept up to date by their status listener,
+     * other servers are requested again if force is set
+     * @param query    server name, address or id
+     * @param force    request the current state of the server
+     * @param priority priority of the requests (e.g. INTERACTIVE for commands)
+     * @return found server or null
+     * @throws APIException exceptions from the API
+     */
+    public Server findServer(String query, boolean force, RateLimiter.Priority priority) throws APIException {
+        query = this.resolveQuery(query);
+        Server server = serverCache.get(priority).find(query);
+        if (!force) {
+            return server;
+        }
 
-        servers = Arrays.stream(servers)
-                .filter(server -> matchExact(server, finalQuery))
-                .toArray(Server[]::new);
+        if (server == null) {
+            // the server might have been created since the server list was fetched
+            return serverCache.refresh(priority).find(query);
+        }
 
-        switch (servers.length) {
-            case 0:
-                return null;
+        if (!statusListeners.containsKey(server.getId())) {
+            try {
+                apiRequests.call(priority, ApiRequests.Endpoint.SERVER, server::get);
+            } catch (APIException e) {
+                if (!apiRequests.isUnavailable()) {
+                    throw e;
+                }
+                // the API is down, use the cached server instead
+                logger.log(Level.FINE, "Using cached status of " + server.getName(), e);
+                return server;
+            }
+            this.updateServer(server);
+        }
+        return server;
+    }
 
-            case 1:
-                return servers[0];
+    /**
+     * find a server in a server list that isn't older than maxAge
+     * watched servers are always up to date, so they are never requested again
+     * @param query  server name, address, id or proxy name
+     * @param maxAge maximum age of the server
+     * @param unit   time unit of maxAge
+     * @return found server or null
+     * @throws APIException exceptions from the API
+     */
+    public Server findServer(String query, long maxAge, TimeUnit unit) throws APIException {
+        query = this.resolveQuery(query);
+        ServerIndex index = serverCache.peek();
+        Server server = index == null ? null : index.find(query);
+        if (server != null && statusListeners.containsKey(server.getId())) {
+            return server;
+        }
+        return this.getServerIndex(maxAge, unit).find(query);
+    }
 
-            default:
-                Optional<Server> server = Arrays.stream(servers).filter(s -> s.getId().equals(finalQuery)).findFirst();
-                return server.orElse(servers[0]);
+    /**
+     * find multiple servers in the same server list
+     * @param queries server names, addresses, ids or proxy names
+     * @param index   server list
+     * @return query -> found server or null in the order of the queries
+     */
+    public Map<String, Server> findServers(Collection<String> queries, ServerIndex index) {
+        Map<String, Server> result = new LinkedHashMap<>();
+        for (String query : queries) {
+            result.put(query, index.find(this.resolveQuery(query)));
         }
+        return result;
+    }
+
+    /**
+     * @param query server name, address, id or proxy name
+     * @return exaroton address if the query is a server name in the bungee config, otherwise the query
+     */
+    private String resolveQuery(String query) {
+        return bungeeServers.getOrDefault(query, query);
     }
 
     /**
@@ -245,10 +761,37 @@ public class ExarotonPlugin extends Plugin {
      * @return get server cache (request if necessary)
      */
     public Server[] getServerCache() throws APIException {
-        if (serverCache == null) {
-            this.fetchServers();
-        }
-        return serverCache;
+        return getServerIndex().getServers();
+    }
+
+    /**
+     * @return get server index (request if necessary)
+     */
+    public ServerIndex getServerIndex() throws APIException {
+        return serverCache.get();
+    }
+
+    /**
+     * @param maxAge maximum age of the server list
+     * @param unit   time unit of maxAge
+     * @return server index that isn't older than maxAge (request if necessary)
+     */
+    public ServerIndex getServerIndex(long maxAge, TimeUnit unit) throws APIException {
+        return serverCache.get(maxAge, unit);
+    }
+
+    /**
+     * @return age of the cached server list in milliseconds or -1 if there is none
+     */
+    public long getServerCacheAge() {
+        return serverCache.getAge();
+    }
+
+    /**
+     * @return cached server index or null if the server list hasn't been fetched yet, never blocks
+     */
+    public ServerIndex getCachedServerIndex() {
+        return serverCache.getIfPresent();
     }
 
     /**
@@ -261,18 +804,21 @@ public class ExarotonPlugin extends Plugin {
     }
 
     /**
+     * never waits for the API, all names are returned if the server list hasn't been fetched yet
      * @param servers list of server names
      * @param status status code
      * @return server names that have the requested status
      */
     public Stream<String> findWithStatusByName(Stream<String> servers, int status) {
-        return servers.filter(server -> {
-            try {
-                return this.findServer(server, false).hasStatus(status);
-            } catch (APIException e) {
-                logger.log(Level.SEVERE, "Failed to request API", e);
-                return true;
-            }
+        ServerIndex index = this.getCachedServerIndex();
+        if (index == null) {
+            return servers;
+        }
+
+        return servers.filter(name -> {
+            String address = bungeeServers.get(name);
+            Server server = index.find(address != null ? address : name);
+            return server != null && server.hasStatus(status);
         });
     }
 
@@ -300,52 +846,43 @@ public class ExarotonPlugin extends Plugin {
         return this.bungeeServers.keySet().stream();
     }
 
+    /**
+     * get the prefix index for tab completions
+     * never waits for the API, a refresh is started in the background if the server list is stale
+     * @return completion index
+     */
+    public CompletionIndex getCompletionIndex() {
+        serverCache.getIfPresent();
+        return completions.get();
+    }
+
     /**
      * find auto completions by a query and status
+     * if the server list hasn't been fetched yet only bungee server names are returned
      * @param query partial server name, address or ID
      * @param status server status
      * @return all matching server names, addresses and IDs
      */
     public Iterable<String> serverCompletions(String query, Integer status) {
-        Stream<Server> servers;
-        try {
-            servers = Arrays.stream(getServerCache());
-        } catch (APIException exception) {
-            logger.log(Level.SEVERE, "Failed to access API", exception);
-            return new ArrayList<>();
+        CompletionIndex completions = this.getCompletionIndex();
+        if (completions.getServerIndex() == null) {
+            return completions.findBungeeServers(query, null);
         }
-        if (status != null)
-            servers = findWithStatus(servers, status);
-        servers = findWithQuery(servers, query);
-        Server[] matching = servers.toArray(Server[]::new);
-
-        Stream<String> bungeeServers = getBungeeServers()
-                .filter(s -> s.startsWith(query));
-
-        if (status != null)
-            bungeeServers = findWithStatusByName(bungeeServers, status);
-
-        List<String> result = bungeeServers.collect(Collectors.toList());
-        result.addAll(getAllNames(matching));
 
+        List<String> result = completions.findBungeeServers(query, status);
+        result.addAll(completions.find(query, status));
         return result;
     }
 
+    /**
+     * find auto completions for servers that aren't in the proxy
+     * @param query partial server name, address or ID
+     * @return all matching server names, addresses and IDs
+     */
     public Iterable<String> serverCompletionsNotInProxy(String query) {
-        Stream<Server> servers;
-        try {
-            servers = Arrays.stream(getServerCache());
-        } catch (APIException exception) {
-            logger.log(Level.SEVERE, "Failed to access API", exception);
-            return new ArrayList<>();
-        }
-        servers = findWithQuery(servers, query);
-        servers = servers.filter(s -> {
-            String name = findServerName(s.getAddress(), s.getName());
-            return !this.getProxy().getServers().containsKey(name);
-        });
-
-        return getAllNames(servers.toArray(Server[]::new));
+        Map<String, ServerInfo> proxyServers = this.getProxy().getServers();
+        return this.getCompletionIndex().find(query, null,
+                server -> !proxyServers.containsKey(findServerName(server.getAddress(), server.getName())));
     }
 
     /**
@@ -380,18 +917,42 @@ public class ExarotonPlugin extends Plugin {
      * @param restricted     is server restricted
      */
     public ServerStatusListener listenToStatus(Server server, CommandSender sender, String name, int expectedStatus, boolean restricted) {
-        if (statusListeners.containsKey(server.getId())) {
-            return statusListeners.get(server.getId())
-                    .setSender(sender, expectedStatus)
-                    .setName(name);
+        ServerStatusListener listener = statusListeners.get(server.getId());
+        if (listener == null) {
+            listener = this.subscribe(server, restricted, sender != null ? RateLimiter.Priority.INTERACTIVE : RateLimiter.Priority.DEFAULT);
         }
-        server.subscribe();
-        ServerStatusListener listener = new ServerStatusListener(this, restricted, server)
+        return listener
                 .setSender(sender, expectedStatus)
                 .setName(name);
-        server.addStatusSubscriber(listener);
-        statusListeners.put(server.getId(), listener);
-        return listener;
+    }
+
+    /**
+     * register a status listener for this server and subscribe to it unless another thread was faster
+     * the subscription is sent through the rate limiter and circuit breaker like every other request
+     * @param server     server to subscribe to
+     * @param restricted is server restricted
+     * @param priority   priority of the subscription
+     * @return registered status listener
+     */
+    private ServerStatusListener subscribe(Server server, boolean restricted, RateLimiter.Priority priority) {
+        ServerStatusListener created = new ServerStatusListener(this, restricted, server);
+        ServerStatusListener existing = statusListeners.putIfAbsent(server.getId(), created);
+        if (existing != null) {
+            return existing;
+        }
+
+        // only the thread that registered the listener subscribes, so the server is never subscribed to twice
+        try {
+            apiRequests.run(priority, ApiRequests.Endpoint.SUBSCRIBE, () -> {
+                server.subscribe();
+                server.addStatusSubscriber(created);
+            });
+        } catch (APIException | RuntimeException e) {
+            statusListeners.remove(server.getId(), created);
+            created.subscriptionFailed(e);
+            logger.log(Level.WARNING, "Failed to watch status changes of " + server.getName(), e);
+        }
+        return created;
     }
 
     /**
@@ -399,24 +960,109 @@ public class ExarotonPlugin extends Plugin {
      * @param serverId ID of the server to unsubscribe from
      */
     public void stopListeningToStatus(String serverId) {
-        if (!this.statusListeners.containsKey(serverId)) {
-            return;
+        ServerStatusListener listener = this.statusListeners.remove(serverId);
+        if (listener != null) {
+            listener.unsubscribe();
+        }
+    }
+
+    /**
+     * stop listening to all servers
+     * subscriptions are closed in parallel
+     * @param deadline {@link System#nanoTime()} after which to stop waiting for the subscriptions to close
+     */
+    private void stopListeningToAll(long deadline) {
+        List<CompletableFuture<Void>> closing = new ArrayList<>();
+        for (String serverId : new ArrayList<>(statusListeners.keySet())) {
+            closing.add(CompletableFuture.runAsync(() -> this.stopListeningToStatus(serverId), executor));
+        }
+        if (!this.awaitUntil(CompletableFuture.allOf(closing.toArray(new CompletableFuture<?>[0])), deadline)) {
+            logger.warning("Failed to close all status subscriptions in time");
         }
-        this.statusListeners.get(serverId).unsubscribe();
-        this.statusListeners.remove(serverId);
+    }
+
+    /**
+     * register the servers from the last snapshot in the proxy
+     * they are reconciled with the API once the server list has been fetched
+     */
+    private void loadSnapshot() {
+        this.snapshot = new ServerSnapshot(new File(this.getDataFolder(), "servers.yml"));
+        if (!config.getBoolean("watch-servers", false) || !config.getBoolean("warm-start", true)) return;
+
+        List<String> stopped = config.getBoolean("auto-stop.enabled") ? config.getStringList("auto-stop.servers") : Collections.emptyList();
+        Configuration servers = bungeeConfig.getSection("servers");
+        int registered = 0;
+        try {
+            for (ServerSnapshot.Entry entry : snapshot.load()) {
+                if (entry.getStatus() != ServerStatus.ONLINE
+                        || entry.getHost() == null || entry.getHost().isEmpty()
+                        || entry.getAddress() == null || !entry.getAddress().equals(bungeeServers.get(entry.getName()))
+                        // servers from the auto-stop list were stopped when the proxy shut down
+                        || stopped.contains(entry.getName()) || stopped.contains(entry.getAddress()) || stopped.contains(entry.getId())) {
+                    continue;
+                }
+
+                boolean restricted = servers.getBoolean(entry.getName() + ".restricted", false);
+                this.addToProxy(entry.getName(), null, serverInfoCache.get(entry.getName(),
+                        entry.getHost(), entry.getPort(), entry.getMotd(), restricted));
+                registered++;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to load server snapshot", e);
+        }
+        if (registered > 0) {
+            logger.info("Registered " + registered + " server(s) from the last snapshot");
+        }
+    }
+
+    /**
+     * store the current state of all watched servers
+     */
+    public void saveSnapshot() {
+        if (snapshot == null) return;
+        List<ServerSnapshot.Entry> entries = new ArrayList<>();
+        for (ServerStatusListener listener : statusListeners.values()) {
+            // the listener keeps the server it was created with, status updates are applied to the cache
+            Server server = this.getLatestServer(listener.getServer());
+            entries.add(ServerSnapshot.Entry.of(listener.getName(server), server));
+        }
+        try {
+            snapshot.save(entries);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to save server snapshot", e);
+        }
+    }
+
+    /**
+     * save a snapshot in a few seconds unless a save is already scheduled
+     * status updates in quick succession only cause a single save
+     */
+    public void scheduleSnapshot() {
+        if (snapshot == null || !snapshotScheduled.compareAndSet(false, true)) return;
+        this.getProxy().getScheduler().schedule(this, () -> {
+            snapshotScheduled.set(false);
+            this.saveSnapshot();
+        }, 5, TimeUnit.SECONDS);
     }
 
     /**
      * start watching servers in the bungee config
+     * servers are watched and started in parallel, limited by startup.concurrency
      */
     public void runAsyncTasks() {
         this.getProxy().getScheduler().runAsync(this, () -> {
-            this.watchServers();
-            this.autoStartServers();
+            StartupTimeline timeline = new StartupTimeline();
+            List<CompletableFuture<Void>> tasks = new ArrayList<>(this.watchServers(timeline));
+            tasks.addAll(this.watchPools(timeline));
+            tasks.addAll(this.autoStartServers(timeline));
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((ignored, e) -> {
+                        timeline.log(logger);
+                        this.scheduleSnapshot();
+                    });
         });
     }
 
-
     /**
      * watch this server
      * @param name       server name (lobby)
@@ -424,54 +1070,147 @@ public class ExarotonPlugin extends Plugin {
      * @param restricted is server restricted
      */
     public void watchServer(String name, String address, boolean restricted) {
+        this.watchServer(name, address, restricted, new StartupTimeline());
+    }
+
+    /**
+     * watch this server
+     * @param name       server name (lobby)
+     * @param address    server address (example.exaroton.me)
+     * @param restricted is server restricted
+     * @param timeline   startup timeline
+     * @return future that completes when the server is watched
+     */
+    private CompletableFuture<Void> watchServer(String name, String address, boolean restricted, StartupTimeline timeline) {
         try {
             Server server = this.findServer(address, false);
             if (server == null) {
                 logger.warning("Can't find server " + address + ". Unable to watch status changes");
-                return;
+                return CompletableFuture.completedFuture(null);
             }
+            failedWatches.remove(name);
             logger.info("Found exaroton server: " + address + ". Starting to watch status changes");
-            if (server.hasStatus(ServerStatus.ONLINE)) {
-                logger.info("Updating server address and port for " + name + "...");
-                this.getProxy().getServers().remove(name);
-                this.getProxy().getServers().put(name, this.constructServerInfo(name, server, restricted));
-            } else {
-                this.getProxy().getServers().remove(name);
-                logger.info("Server " + name + " is offline, removed it from the server list!");
-            }
-            this.listenToStatus(server, null, name, -1, restricted);
+            timeline.mark(name, "found");
+            return this.runStartupTask(server, () -> {
+                if (server.hasStatus(ServerStatus.ONLINE)) {
+                    logger.info("Updating server address and port for " + name + "...");
+                    this.addToProxy(name, server, restricted);
+                } else if (this.removeOfflineServer(name, server)) {
+                    logger.info("Server " + name + " is offline, removed it from the server list!");
+                } else {
+                    logger.info("Server " + name + " is offline, it is started when a player connects");
+                }
+                timeline.mark(name, "registered");
+                this.listenToStatus(server, null, name, -1, restricted);
+                timeline.mark(name, "subscribed");
+            });
         } catch (APIException e) {
-            logger.log(Level.SEVERE, "Failed to access API, not watching " + name);
+            this.retryWatch(name, address, restricted, e);
+            return CompletableFuture.completedFuture(null);
         }
     }
 
+    /**
+     * try to watch this server again later
+     * the delay doubles after each failed attempt, up to 5 minutes
+     * @param name       server name (lobby)
+     * @param address    server address (example.exaroton.me)
+     * @param restricted is server restricted
+     * @param e          reason the last attempt failed
+     */
+    private void retryWatch(String name, String address, boolean restricted, APIException e) {
+        int attempt = failedWatches.merge(name, 1, Integer::sum);
+        long delay = ApiRequests.backoff(attempt, TimeUnit.SECONDS.toMillis(5), TimeUnit.MINUTES.toMillis(5));
+        logger.log(Level.WARNING, "Failed to access API, trying to watch " + name + " again in " + delay / 1000 + "s: " + e.getMessage());
+        this.getProxy().getScheduler().schedule(this, () -> {
+            if (!executor.isShutdown() && failedWatches.containsKey(name)) {
+                executor.execute(() -> this.watchServer(name, address, restricted));
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * watch servers in bungee config
      */
     public void watchServers() {
-        if (!config.getBoolean("watch-servers", false)) return;
+        this.watchServers(new StartupTimeline());
+    }
+
+    /**
+     * watch servers in bungee config
+     * @param timeline startup timeline
+     * @return futures that complete when the servers are watched
+     */
+    private List<CompletableFuture<Void>> watchServers(StartupTimeline timeline) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        if (!config.getBoolean("watch-servers", false)) return tasks;
         Configuration servers = bungeeConfig.getSection("servers");
         for (Map.Entry<String, String> entry: bungeeServers.entrySet()) {
-            this.watchServer(entry.getKey(), entry.getValue(), servers.getBoolean(entry.getKey() + ".restricted", false));
+            timeline.mark(entry.getKey(), "queued");
+            tasks.add(this.watchServer(entry.getKey(), entry.getValue(), servers.getBoolean(entry.getKey() + ".restricted", false), timeline));
         }
+        return tasks;
     }
 
     /**
      * generate server info
+     * never waits for a DNS lookup, the previous server info is reused if nothing changed
      * @param name       server name in network
      * @param server     server
      * @param restricted restricted
      * @return bungee server info
      */
     public ServerInfo constructServerInfo(String name, Server server, boolean restricted) {
-        return this.getProxy().constructServerInfo(name, new InetSocketAddress(server.getHost(), server.getPort()), server.getMotd(), restricted);
+        return serverInfoCache.get(name, server, restricted);
+    }
+
+    /**
+     * watch all members of the server pools, so their status and player count is kept up to date
+     * @param timeline startup timeline
+     * @return futures that complete when the members are watched
+     */
+    private List<CompletableFuture<Void>> watchPools(StartupTimeline timeline) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        Set<String> members = new LinkedHashSet<>();
+        for (String pool : serverPools.getNames()) {
+            members.addAll(serverPools.getMembers(pool));
+        }
+
+        for (String member : members) {
+            try {
+                Server server = this.findServer(member, false);
+                if (server == null) {
+                    logger.warning("Can't find pool member " + member + ". Unable to watch status changes");
+                    continue;
+                }
+
+                String name = findServerName(server.getAddress(), server.getName());
+                tasks.add(this.runStartupTask(server, () -> {
+                    this.listenToStatus(server, name);
+                    timeline.mark(name, "pool member subscribed");
+                }));
+            } catch (APIException e) {
+                logger.log(Level.SEVERE, "Failed to watch pool member " + member + "!", e);
+            }
+        }
+        return tasks;
     }
 
     /**
      * automatically start servers from the config
      */
     public void autoStartServers() {
-        if (!config.getBoolean("auto-start.enabled")) return;
+        this.autoStartServers(new StartupTimeline());
+    }
+
+    /**
+     * automatically start servers from the config
+     * @param timeline startup timeline
+     * @return futures that complete when the servers have been started
+     */
+    private List<CompletableFuture<Void>> autoStartServers(StartupTimeline timeline) {
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        if (!config.getBoolean("auto-start.enabled")) return tasks;
         for (String query : config.getStringList("auto-start.servers")) {
             try {
                 Server server = this.findServer(query, false);
@@ -482,36 +1221,109 @@ public class ExarotonPlugin extends Plugin {
                 }
 
                 String name = findServerName(server.getAddress(), server.getName());
-                if (server.hasStatus(ServerStatus.ONLINE)) {
-                    if (name == null) {
-                        logger.log(Level.INFO, server.getAddress() + " is already online, adding it to proxy!");
-                        this.getProxy().getServers().put(server.getName(), this.constructServerInfo(server.getName(), server, false));
-                    } else {
-                        logger.log(Level.INFO, name + " is already online!");
+                timeline.mark(name, "auto-start queued");
+                tasks.add(this.runStartupTask(server, () -> {
+                    try {
+                        this.autoStartServer(server);
+                        timeline.mark(name, "auto-start done");
+                    } catch (APIException e) {
+                        timeline.mark(name, "auto-start failed");
+                        logger.log(Level.SEVERE, "Failed to start " + query + "!", e);
                     }
-                    this.listenToStatus(server, null, name, -1);
-                    continue;
-                }
+                }));
+            } catch (APIException e) {
+                logger.log(Level.SEVERE, "Failed to start " + query + "!", e);
+            }
+        }
+        return tasks;
+    }
 
-                if (server.hasStatus(ServerStatus.STARTING, ServerStatus.LOADING, ServerStatus.PREPARING, ServerStatus.RESTARTING)) {
-                    logger.log(Level.INFO, name + " is already online or starting!");
-                    this.listenToStatus(server, null, name, ServerStatus.ONLINE);
-                    continue;
-                }
+    /**
+     * run a startup task for this server once one of the startup.concurrency slots is free
+     * the calling thread never waits for a slot, the task is queued instead
+     * @param server exaroton server
+     * @param task   startup task
+     * @return future that completes when the task is done
+     */
+    private CompletableFuture<Void> runStartupTask(Server server, Runnable task) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        waitingStartupTasks.add(() -> {
+            try {
+                serverExecutor.submit(server.getId(), () -> {
+                    task.run();
+                    return null;
+                }).whenComplete((ignored, e) -> {
+                    this.finishStartupTask();
+                    if (e != null) {
+                        future.completeExceptionally(e);
+                    } else {
+                        future.complete(null);
+                    }
+                });
+            } catch (RuntimeException e) {
+                this.finishStartupTask();
+                future.completeExceptionally(e);
+            }
+        });
+        this.runWaitingStartupTasks();
+        return future;
+    }
 
-                if (!server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
-                    logger.log(Level.SEVERE, "Can't start " + name + ": Server isn't offline.");
-                    continue;
-                }
+    /**
+     * run waiting startup tasks while there are free slots
+     */
+    private void runWaitingStartupTasks() {
+        // a slot released after the queue was checked runs the waiting tasks itself
+        while (!waitingStartupTasks.isEmpty() && startupPermits.tryAcquire()) {
+            Runnable next = waitingStartupTasks.poll();
+            if (next == null) {
+                startupPermits.release();
+            } else {
+                next.run();
+            }
+        }
+    }
 
-                logger.log(Level.INFO, "Starting " + name);
-                this.listenToStatus(server, null, name, ServerStatus.ONLINE);
-                server.start();
+    /**
+     * free the slot of a finished startup task and run the next one
+     */
+    private void finishStartupTask() {
+        startupPermits.release();
+        this.runWaitingStartupTasks();
+    }
 
-            } catch (APIException e) {
-                logger.log(Level.SEVERE, "Failed to start " + query + "!", e);
+    /**
+     * start this server if it's offline and add it to the proxy
+     * @param server server from the auto-start list
+     * @throws APIException exceptions from the API
+     */
+    private void autoStartServer(Server server) throws APIException {
+        String name = findServerName(server.getAddress(), server.getName());
+        if (server.hasStatus(ServerStatus.ONLINE)) {
+            if (name == null) {
+                logger.log(Level.INFO, server.getAddress() + " is already online, adding it to proxy!");
+                this.addToProxy(server.getName(), server, false);
+            } else {
+                logger.log(Level.INFO, name + " is already online!");
             }
+            this.listenToStatus(server, null, name, -1);
+            return;
+        }
+
+        if (server.hasStatus(ServerStatus.STARTING, ServerStatus.LOADING, ServerStatus.PREPARING, ServerStatus.RESTARTING)) {
+            logger.log(Level.INFO, name + " is already online or starting!");
+            this.listenToStatus(server, null, name, ServerStatus.ONLINE);
+            return;
         }
+
+        if (!server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            logger.log(Level.SEVERE, "Can't start " + name + ": Server isn't offline.");
+            return;
+        }
+
+        logger.log(Level.INFO, "Starting " + name);
+        this.listenToStatus(server, null, name, ServerStatus.ONLINE);
+        apiRequests.run(RateLimiter.Priority.BACKGROUND, ApiRequests.Endpoint.START, server::start);
     }
 
     /**
@@ -530,32 +1342,223 @@ public class ExarotonPlugin extends Plugin {
      * @return server name e.g. lobby
      */
     public String findServerName(String address, String fallback) {
-        for (Map.Entry<String, String> entry : this.bungeeServers.entrySet()) {
-            if (entry.getValue().equals(address)) return entry.getKey();
-        }
-        return fallback;
+        return this.bungeeServerNames.getOrDefault(address, fallback);
+    }
+
+    /**
+     * find the exaroton address of a server in the bungee config
+     * @param name server name e.g. lobby
+     * @return exaroton address e.g. example.exaroton.me or null
+     */
+    public String findServerAddress(String name) {
+        return this.bungeeServers.get(name);
     }
 
+    /**
+     * @param name server name in the bungee config
+     * @return is the server restricted in the bungee config
+     */
+    public boolean isRestricted(String name) {
+        Configuration servers = bungeeConfig == null ? null : bungeeConfig.getSection("servers");
+        return servers != null && servers.getBoolean(name + ".restricted", false);
+    }
+
+    /**
+     * @param server exaroton server
+     * @return is the status of this server kept up to date by a status listener
+     */
+    public boolean isWatched(Server server) {
+        return statusListeners.containsKey(server.getId());
+    }
+
+    /**
+     * @param name server name in the proxy
+     * @return does this server stay in the proxy while it is offline, so players connecting to it can start it
+     */
+    public boolean keepsOfflineServer(String name) {
+        return startOnConnect && bungeeServers.containsKey(name);
+    }
+
+    /**
+     * find a server in the cached server list without ever waiting for the API
+     * watched servers are kept up to date by their status listener
+     * @param query server name, address, id or proxy name
+     * @return found server or null if it is unknown or the server list hasn't been fetched yet
+     */
+    public Server findCachedServer(String query) {
+        ServerIndex index = serverCache.getIfPresent();
+        return index == null ? null : index.find(this.resolveQuery(query));
+    }
+
+    /**
+     * get the latest known version of a server
+     * status updates are applied to the cached server list on the server executor,
+     * so tasks on that executor always see the status the last update left behind
+     * @param server exaroton server
+     * @return cached version of the server or the server itself if it isn't cached
+     */
+    public Server getLatestServer(Server server) {
+        ServerIndex index = serverCache.peek();
+        Server latest = index == null ? null : index.getById(server.getId());
+        return latest != null ? latest : server;
+    }
+
+    /**
+     * replace a server in the server cache with an updated version
+     * @param server updated server
+     */
     public void updateServer(Server server) {
-        if (serverCache == null) return;
-        int index = 0;
-        for (; index < serverCache.length; index++) {
-            if (serverCache[index].getId().equals(server.getId())) break;
+        serverCache.update(server);
+    }
+
+    /**
+     * send this player to this online server
+     * the server is added to the proxy if necessary, see {@link #getOrAddToProxy(String, Server, boolean)}
+     * @param player player to move
+     * @param server online server
+     * @return future that completes with whether the player connected
+     */
+    public CompletableFuture<Boolean> movePlayer(ProxiedPlayer player, Server server) {
+        return this.movePlayer(player, server, System.nanoTime());
+    }
+
+    /**
+     * send this player to this online server
+     * the server is added to the proxy if necessary
+     * @param player      player to move
+     * @param server      online server
+     * @param requestedAt {@link System#nanoTime()} when the switch was requested, used for the switch latency
+     * @return future that completes with whether the player connected
+     */
+    public CompletableFuture<Boolean> movePlayer(ProxiedPlayer player, Server server, long requestedAt) {
+        String name = findServerName(server.getAddress(), server.getName());
+        ServerInfo info = this.getOrAddToProxy(name, server, this.isRestricted(name));
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        player.connect(info, (connected, error) -> {
+            if (Boolean.TRUE.equals(connected)) {
+                switchLatency.record(System.nanoTime() - requestedAt);
+            }
+            result.complete(Boolean.TRUE.equals(connected));
+        });
+        return result;
+    }
+
+    /**
+     * get the server info of this server in the proxy
+     * if the server isn't in the proxy yet, it is added by a task of the server executor,
+     * so the {@link ServerAddedEvent} is called in order with the other events of the server
+     * never waits, so it can be used on network threads
+     * @param name       server name in the proxy
+     * @param server     online exaroton server
+     * @param restricted restricted
+     * @return bungee server info
+     */
+    public ServerInfo getOrAddToProxy(String name, Server server, boolean restricted) {
+        ServerInfo info = this.getProxy().getServers().get(name);
+        if (info != null) {
+            return info;
+        }
+
+        serverExecutor.execute(server.getId(), () -> {
+            Server current = this.getLatestServer(server);
+            if (current.hasStatus(ServerStatus.ONLINE) && !this.getProxy().getServers().containsKey(name)) {
+                this.addToProxy(name, current, restricted);
+            }
+        });
+        return this.constructServerInfo(name, server, restricted);
+    }
+
+    /**
+     * add this server to the proxy or replace the existing server info
+     * calls a {@link ServerAddedEvent} if the server wasn't in the proxy before
+     * @param name       server name in the proxy
+     * @param server     exaroton server
+     * @param restricted restricted
+     * @return bungee server info
+     */
+    public ServerInfo addToProxy(String name, Server server, boolean restricted) {
+        return this.addToProxy(name, server, this.constructServerInfo(name, server, restricted));
+    }
+
+    /**
+     * add this server info to the proxy or replace the existing server info
+     * calls a {@link ServerAddedEvent} if the server wasn't in the proxy before or came from the snapshot
+     * @param name   server name in the proxy
+     * @param server exaroton server or null if it is registered from the snapshot
+     * @param info   bungee server info
+     * @return bungee server info
+     */
+    private ServerInfo addToProxy(String name, Server server, ServerInfo info) {
+        boolean added = this.getProxy().getServers().put(name, info) == null;
+        if (server == null) {
+            // announced once the API confirms the server
+            warmStarted.add(name);
+            return info;
+        }
+
+        boolean confirmed = warmStarted.remove(name);
+        if (added || confirmed) {
+            this.getProxy().getPluginManager().callEvent(new ServerAddedEvent(name, server, info));
+        }
+        return info;
+    }
+
+    /**
+     * remove a server that went offline from the proxy
+     * servers from the bungee config stay registered while start-on-connect is enabled,
+     * otherwise no ServerConnectEvent would be called for them and connecting players couldn't start them
+     * a placeholder is registered if the server isn't in the proxy, it is replaced when the server goes online
+     * @param name   server name in the proxy
+     * @param server exaroton server
+     * @return was the server removed
+     */
+    public boolean removeOfflineServer(String name, Server server) {
+        if (!this.keepsOfflineServer(name)) {
+            return this.removeFromProxy(name, server);
         }
-        if (index < serverCache.length) {
-            serverCache[index] = server;
+
+        this.getProxy().getServers().computeIfAbsent(name, key -> this.getProxy().constructServerInfo(key,
+                InetSocketAddress.createUnresolved(bungeeServers.get(key), 25565), server.getMotd(), this.isRestricted(key)));
+        return false;
+    }
+
+    /**
+     * remove this server from the proxy
+     * calls a {@link ServerRemovedEvent} if the server was in the proxy
+     * @param name   server name in the proxy
+     * @param server exaroton server
+     * @return was the server removed
+     */
+    public boolean removeFromProxy(String name, Server server) {
+        ServerInfo info = this.getProxy().getServers().remove(name);
+        if (info == null) {
+            return false;
+        }
+        // servers from the snapshot that were never announced aren't announced as removed either
+        if (!warmStarted.remove(name)) {
+            this.getProxy().getPluginManager().callEvent(new ServerRemovedEvent(name, server, info));
         }
+        return true;
     }
 
     /**
      * automatically stop servers from the config
+     * waits at most auto-stop.timeout seconds
      */
     public void autoStopServers() {
-        if (!config.getBoolean("auto-stop.enabled")) return;
+        this.autoStopServers(this.getShutdownDeadline());
+    }
 
-        ExecutorService executor = Executors.newCachedThreadPool();
-        ArrayList<Callable<Object>> stopping = new ArrayList<>();
+    /**
+     * automatically stop servers from the config
+     * all servers are stopped in parallel, if auto-stop.wait-for-offline is enabled this also waits until they are offline
+     * @param deadline {@link System#nanoTime()} after which to stop waiting
+     */
+    private void autoStopServers(long deadline) {
+        if (!config.getBoolean("auto-stop.enabled")) return;
+        boolean waitForOffline = config.getBoolean("auto-stop.wait-for-offline", false);
 
+        Map<String, CompletableFuture<?>> stopping = new LinkedHashMap<>();
         for (String query : config.getStringList("auto-stop.servers")) {
             try {
                 Server server = this.findServer(query, false);
@@ -573,6 +1576,9 @@ public class ExarotonPlugin extends Plugin {
 
                 if (server.hasStatus(ServerStatus.SAVING, ServerStatus.STOPPING)) {
                     logger.log(Level.INFO, name + " is already stopping!");
+                    if (waitForOffline) {
+                        stopping.put(name, this.listenToStatus(server, name).waitForStatus(ServerStatus.OFFLINE));
+                    }
                     continue;
                 }
 
@@ -582,10 +1588,14 @@ public class ExarotonPlugin extends Plugin {
                 }
 
                 logger.log(Level.INFO, "Stopping " + name);
-                stopping.add(() -> {
-                    server.stop();
+                // start waiting before the request is sent so the status update can't be missed
+                CompletableFuture<Server> offline = waitForOffline ?
+                        this.listenToStatus(server, name).waitForStatus(ServerStatus.OFFLINE) : null;
+                CompletableFuture<Object> stopped = serverExecutor.submit(server.getId(), () -> {
+                    apiRequests.run(RateLimiter.Priority.DEFAULT, ApiRequests.Endpoint.STOP, server::stop);
                     return null;
                 });
+                stopping.put(name, offline == null ? stopped : stopped.thenCompose(ignored -> offline));
             } catch (APIException e) {
                 logger.log(Level.SEVERE, "Failed to stop " + query + "!", e);
             }
@@ -593,14 +1603,28 @@ public class ExarotonPlugin extends Plugin {
         if (stopping.size() == 0)
             return;
 
-        try {
-            executor.invokeAll(stopping);
-        } catch (InterruptedException e) {
-            logger.log(Level.SEVERE, "Failed to stop servers", e);
-            return;
-        }
+        this.awaitUntil(CompletableFuture.allOf(stopping.values().toArray(new CompletableFuture<?>[0])), deadline);
 
-        int count = stopping.size();
+        int count = 0;
+        for (Map.Entry<String, CompletableFuture<?>> entry : stopping.entrySet()) {
+            CompletableFuture<?> future = entry.getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                count++;
+                continue;
+            }
+
+            if (!future.isDone()) {
+                logger.log(Level.WARNING, entry.getKey() + " didn't " + (waitForOffline ? "go offline" : "stop") + " in time");
+                future.cancel(false);
+                continue;
+            }
+
+            try {
+                future.join();
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Failed to stop " + entry.getKey() + "!", e.getCause() != null ? e.getCause() : e);
+            }
+        }
         logger.info("Successfully stopped " + count + " server" + (count == 1 ? "" : "s") + "!");
     }
 }
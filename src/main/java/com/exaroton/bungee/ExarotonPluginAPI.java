@@ -3,14 +3,19 @@ package com.exaroton.bungee;
 import com.exaroton.api.APIException;
 import com.exaroton.api.server.Server;
 import com.exaroton.api.server.ServerStatus;
-import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 
+import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.*;
 
 public class ExarotonPluginAPI {
 
+    /**
+     * default time in minutes to wait for a server to go online before switching a player
+     */
+    public static final long DEFAULT_SWITCH_TIMEOUT = 10;
+
     private static ExarotonPlugin plugin;
 
     /**
@@ -27,6 +32,51 @@ public class ExarotonPluginAPI {
         return plugin.findServer(query, true);
     }
 
+    /**
+     * find a server in the cached server list if it isn't older than maxAge
+     * watched servers are always up to date and never requested again
+     * @param query  server name, address, id or proxy name
+     * @param maxAge maximum acceptable age of the server, 0 to always request the server list
+     * @param unit   time unit of maxAge
+     * @return found server or null
+     * @throws APIException exception while fetching server list
+     */
+    public static Server findServer(String query, long maxAge, TimeUnit unit) throws APIException {
+        return plugin.findServer(query, maxAge, unit);
+    }
+
+    /**
+     * find multiple servers in the same version of the server list
+     * the cached server list is used, it is only requested if it has expired
+     * @param queries server names, addresses, ids or proxy names
+     * @return query -> found server or null, in the order of the queries
+     * @throws APIException exception while fetching server list
+     */
+    public static Map<String, Server> findServers(Collection<String> queries) throws APIException {
+        return plugin.findServers(queries, plugin.getServerIndex());
+    }
+
+    /**
+     * find multiple servers in the same version of the server list
+     * @param queries server names, addresses, ids or proxy names
+     * @param maxAge  maximum acceptable age of the server list
+     * @param unit    time unit of maxAge
+     * @return query -> found server or null, in the order of the queries
+     * @throws APIException exception while fetching server list
+     */
+    public static Map<String, Server> findServers(Collection<String> queries, long maxAge, TimeUnit unit) throws APIException {
+        return plugin.findServers(queries, plugin.getServerIndex(maxAge, unit));
+    }
+
+    /**
+     * get the cached server list without waiting for a request
+     * watched servers in it are replaced in place when their status changes, see {@link ServerIndex}
+     * @return cached server list or null if it hasn't been fetched yet
+     */
+    public static ServerIndex getCachedServers() {
+        return plugin.getCachedServerIndex();
+    }
+
     /**
      * start a server and add it to the proxy
      * @param server server to start
@@ -38,13 +88,16 @@ public class ExarotonPluginAPI {
             throw new NullPointerException("No server provided!");
         }
 
-        if (!server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
-            return false;
-        }
+        return runForServer(server, () -> {
+            Server current = plugin.getLatestServer(server);
+            if (!current.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                return false;
+            }
 
-        watchServer(server);
-        server.start();
-        return true;
+            watchServer(current);
+            plugin.getApiRequests().run(RateLimiter.Priority.DEFAULT, ApiRequests.Endpoint.START, current::start);
+            return true;
+        });
     }
 
     /**
@@ -59,13 +112,16 @@ public class ExarotonPluginAPI {
             throw new NullPointerException("No server provided!");
         }
 
-        if (!server.hasStatus(ServerStatus.ONLINE)) {
-            return false;
-        }
+        return runForServer(server, () -> {
+            Server current = plugin.getLatestServer(server);
+            if (!current.hasStatus(ServerStatus.ONLINE)) {
+                return false;
+            }
 
-        watchServer(server);
-        server.stop();
-        return true;
+            watchServer(current);
+            plugin.getApiRequests().run(RateLimiter.Priority.DEFAULT, ApiRequests.Endpoint.STOP, current::stop);
+            return true;
+        });
     }
 
     /**
@@ -79,13 +135,16 @@ public class ExarotonPluginAPI {
             throw new NullPointerException("No server provided!");
         }
 
-        if (!server.hasStatus(ServerStatus.ONLINE)) {
-            return false;
-        }
+        return runForServer(server, () -> {
+            Server current = plugin.getLatestServer(server);
+            if (!current.hasStatus(ServerStatus.ONLINE)) {
+                return false;
+            }
 
-        watchServer(server);
-        server.restart();
-        return true;
+            watchServer(current);
+            plugin.getApiRequests().run(RateLimiter.Priority.DEFAULT, ApiRequests.Endpoint.RESTART, current::restart);
+            return true;
+        });
     }
 
     /**
@@ -98,19 +157,26 @@ public class ExarotonPluginAPI {
             throw new NullPointerException("No server provided!");
         }
 
-        ServerStatusListener listener = watchServer(server);
-        String name = listener.getName(server);
+        try {
+            return runForServer(server, () -> {
+                Server current = plugin.getLatestServer(server);
+                ServerStatusListener listener = watchServer(current);
+                String name = listener.getName(current);
 
-        if (server.hasStatus(ServerStatus.ONLINE)) {
-            if (plugin.getProxy().getServers().containsKey(name)) {
+                if (current.hasStatus(ServerStatus.ONLINE)) {
+                    if (plugin.getProxy().getServers().containsKey(name)) {
+                        return false;
+                    }
+                    else {
+                        plugin.addToProxy(name, current, false);
+                        return true;
+                    }
+                }
                 return false;
-            }
-            else {
-                plugin.getProxy().getServers().put(name, plugin.constructServerInfo(name, server, false));
-                return true;
-            }
+            });
+        } catch (APIException e) {
+            throw new RuntimeException("Failed to add server", e);
         }
-        return false;
     }
 
     /**
@@ -145,37 +211,211 @@ public class ExarotonPluginAPI {
      * @param player player to move
      * @param server server to move to
      * @throws APIException exception starting the server
-     * @throws InterruptedException interrupted while
+     * @throws InterruptedException interrupted while waiting for the server to go online
      */
     public static void switchServer(ProxiedPlayer player, Server server) throws APIException, InterruptedException {
+        try {
+            switchServerAsync(player, server).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof APIException) {
+                throw (APIException) e.getCause();
+            }
+            throw new RuntimeException("Failed to start server", e.getCause());
+        }
+    }
+
+    /**
+     * find a server without blocking the calling thread
+     * @param query server name, address, id or proxy name
+     * @return future that completes with the found server or null
+     * @see #findServer(String)
+     */
+    public static CompletableFuture<Server> findServerAsync(String query) {
+        return supplyAsync(() -> findServer(query));
+    }
+
+    /**
+     * start a server and add it to the proxy without blocking the calling thread
+     * @param server server to start
+     * @return future that completes with whether the server was started
+     * @see #startServer(Server)
+     */
+    public static CompletableFuture<Boolean> startServerAsync(Server server) {
         if (server == null) {
             throw new NullPointerException("No server provided!");
         }
 
-        if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED, ServerStatus.LOADING, ServerStatus.STARTING, ServerStatus.PREPARING)) {
-            ServerStatusListener listener = watchServer(server);
-            if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
-                server.start();
+        return plugin.getServerExecutor().submit(server.getId(), () -> startServer(server));
+    }
+
+    /**
+     * stop a server and remove it from the proxy without blocking the calling thread
+     * @param server server to stop
+     * @return future that completes with whether the server was stopped
+     * @see #stopServer(Server)
+     */
+    public static CompletableFuture<Boolean> stopServerAsync(Server server) {
+        if (server == null) {
+            throw new NullPointerException("No server provided!");
+        }
+
+        return plugin.getServerExecutor().submit(server.getId(), () -> stopServer(server));
+    }
+
+    /**
+     * restart a server without blocking the calling thread
+     * @param server server to restart
+     * @return future that completes with whether the server was restarted
+     * @see #restartServer(Server)
+     */
+    public static CompletableFuture<Boolean> restartServerAsync(Server server) {
+        if (server == null) {
+            throw new NullPointerException("No server provided!");
+        }
+
+        return plugin.getServerExecutor().submit(server.getId(), () -> restartServer(server));
+    }
+
+    /**
+     * wait until a server has reached a status
+     * cancelling the returned future stops waiting
+     * @param server  server to wait for
+     * @param status  expected status
+     * @param timeout maximum time to wait
+     * @param unit    time unit of the timeout
+     * @return future that completes with the server or exceptionally with a {@link TimeoutException}
+     */
+    public static CompletableFuture<Server> waitForStatusAsync(Server server, int status, long timeout, TimeUnit unit) {
+        if (server == null) {
+            throw new NullPointerException("No server provided!");
+        }
+
+        CompletableFuture<Server> waiting = watchServer(server).waitForStatus(status, timeout, unit);
+        // status updates are applied by the server executor, so the latest server can't change while this runs
+        plugin.getServerExecutor().execute(server.getId(), () -> {
+            Server current = plugin.getLatestServer(server);
+            if (current.hasStatus(status)) {
+                waiting.complete(current);
             }
-            try {
-                server = listener.waitForStatus(ServerStatus.ONLINE).get();
-            } catch (ExecutionException e) {
-                throw new RuntimeException("Failed to start server", e);
+        });
+        return waiting;
+    }
+
+    /**
+     * send this player to this server without blocking the calling thread
+     * start the server or add it to the network if necessary
+     * @param player player to move
+     * @param server server to move to
+     * @return future that completes when the player is being connected
+     * @see #switchServerAsync(ProxiedPlayer, Server, long, TimeUnit)
+     */
+    public static CompletableFuture<Void> switchServerAsync(ProxiedPlayer player, Server server) {
+        return switchServerAsync(player, server, DEFAULT_SWITCH_TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    /**
+     * send this player to this server without blocking the calling thread
+     * start the server or add it to the network if necessary
+     * players waiting for the same server share a queue, the server is only started once
+     * cancelling the returned future removes the player from the queue
+     * @param player  player to move
+     * @param server  server to move to
+     * @param timeout maximum time to wait for the server to go online
+     * @param unit    time unit of the timeout
+     * @return future that completes when the player is being connected
+     */
+    public static CompletableFuture<Void> switchServerAsync(ProxiedPlayer player, Server server, long timeout, TimeUnit unit) {
+        if (server == null) {
+            throw new NullPointerException("No server provided!");
+        }
+
+        if (!SwitchQueue.isRequired(server)) {
+            return CompletableFuture.runAsync(() -> movePlayer(player, server), plugin.getExecutor());
+        }
+
+        CompletableFuture<Void> waiting = plugin.getSwitchQueue().add(player, server).getFuture();
+        CompletableFuture<Void> result = withTimeout(waiting, () -> waiting.cancel(false), timeout, unit);
+        result.whenComplete((ignored, e) -> {
+            if (e != null) {
+                waiting.cancel(false);
             }
+        });
+        return result;
+    }
+
+    /**
+     * run a task after all other pending tasks for this server and wait for it
+     * threads of the plugin executor run the pending tasks themselves if no other thread is running them,
+     * so waiting never needs a free thread of the pool
+     * other threads (e.g. the main or network thread of the caller) only wait and never run tasks of the plugin
+     * @param server exaroton server
+     * @param task   task changing the state of the server
+     * @return result of the task
+     * @throws APIException exceptions from the API
+     */
+    private static <T> T runForServer(Server server, Callable<T> task) throws APIException {
+        try {
+            SerialExecutor serverExecutor = plugin.getServerExecutor();
+            CompletableFuture<T> future = serverExecutor.submit(server.getId(), task);
+            return plugin.isWorkerThread() ? serverExecutor.join(server.getId(), future) : future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof APIException) {
+                throw (APIException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
+    }
 
-        movePlayer(player, server);
+    /**
+     * run a blocking API call on the plugin executor
+     * @param callable API call
+     * @return future that completes with the result of the call
+     */
+    private static <T> CompletableFuture<T> supplyAsync(Callable<T> callable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        plugin.getExecutor().execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(callable.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
     }
 
-    private static void movePlayer(ProxiedPlayer player, Server server) {
-        String name = plugin.findServerName(server.getAddress(), server.getName());
-        Map<String, ServerInfo> servers = plugin.getProxy().getServers();
+    /**
+     * apply a timeout and stop waiting when the result is cancelled or times out
+     * @param future  future to limit
+     * @param cancel  stops waiting for the underlying future
+     * @param timeout maximum time to wait
+     * @param unit    time unit of the timeout
+     * @return limited future
+     */
+    private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Runnable cancel, long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            } else {
+                result.complete(value);
+            }
+        });
+        result.orTimeout(timeout, unit).whenComplete((value, e) -> {
+            if (e != null) {
+                cancel.run();
+            }
+        });
+        return result;
+    }
 
-        // add to proxy if needed
-        if (!servers.containsKey(name)) {
-            servers.put(name, plugin.constructServerInfo(name, server, false));
-        }
-        player.connect(servers.get(name));
+    private static void movePlayer(ProxiedPlayer player, Server server) {
+        plugin.movePlayer(player, server);
     }
 
     static void setPlugin(ExarotonPlugin plugin) {
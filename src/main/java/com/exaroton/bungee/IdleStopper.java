@@ -0,0 +1,170 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerPlayerInfo;
+import com.exaroton.api.server.ServerStatus;
+import net.md_5.bungee.api.config.ServerInfo;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * stops watched servers that have been empty for a while
+ * players are counted in the proxy and from the status updates of the server
+ */
+public class IdleStopper {
+
+    /**
+     * exaroton plugin
+     */
+    private final ExarotonPlugin plugin;
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * nanoseconds a server has to be empty before it is stopped
+     */
+    private final long emptyTime;
+
+    /**
+     * milliseconds after a server went online before it can be stopped
+     */
+    private final long graceTime;
+
+    /**
+     * servers that are never stopped (exaroton address, name or id or server name in the proxy)
+     */
+    private final Set<String> excluded;
+
+    /**
+     * server id -> {@link System#nanoTime()} since which the server is empty
+     */
+    private final Map<String, Long> emptySince = new ConcurrentHashMap<>();
+
+    /**
+     * server id -> {@link System#currentTimeMillis()} when the stopper first saw the server
+     */
+    private final Map<String, Long> firstSeen = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin    exaroton plugin
+     * @param emptyTime minutes a server has to be empty before it is stopped
+     * @param graceTime minutes after a server went online before it can be stopped
+     * @param excluded  servers that are never stopped
+     */
+    public IdleStopper(ExarotonPlugin plugin, long emptyTime, long graceTime, Collection<String> excluded) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.emptyTime = TimeUnit.MINUTES.toNanos(Math.max(1, emptyTime));
+        this.graceTime = TimeUnit.MINUTES.toMillis(Math.max(0, graceTime));
+        this.excluded = new HashSet<>(excluded);
+    }
+
+    /**
+     * check all watched servers and stop the ones that have been empty for long enough
+     */
+    public void check() {
+        Set<String> watched = new HashSet<>();
+        for (ServerStatusListener listener : plugin.getStatusListeners()) {
+            Server server = plugin.findCachedServer(listener.getServer().getId());
+            if (server == null) {
+                continue;
+            }
+            watched.add(server.getId());
+            String name = listener.getName(server);
+            long seenAt = firstSeen.computeIfAbsent(server.getId(), id -> System.currentTimeMillis());
+
+            if (!server.hasStatus(ServerStatus.ONLINE) || this.isExcluded(server, name) || this.isInGracePeriod(listener, seenAt)
+                    || this.getPlayerCount(server, name) > 0) {
+                emptySince.remove(server.getId());
+                continue;
+            }
+
+            long now = System.nanoTime();
+            long since = emptySince.computeIfAbsent(server.getId(), id -> now);
+            if (now - since >= emptyTime) {
+                emptySince.remove(server.getId());
+                this.stop(server, name);
+            }
+        }
+        emptySince.keySet().retainAll(watched);
+        firstSeen.keySet().retainAll(watched);
+    }
+
+    /**
+     * @param serverId exaroton server id
+     * @return milliseconds the server has been empty or -1 if it isn't empty
+     */
+    public long getEmptyTime(String serverId) {
+        Long since = emptySince.get(serverId);
+        return since == null ? -1 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+
+    /**
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     * @return is the server on the exclusion list
+     */
+    private boolean isExcluded(Server server, String name) {
+        return excluded.contains(server.getAddress()) || excluded.contains(server.getName())
+                || excluded.contains(server.getId()) || excluded.contains(name);
+    }
+
+    /**
+     * servers that haven't been seen going online get the grace time from the moment they were first seen
+     * @param listener status listener of the server
+     * @param seenAt   {@link System#currentTimeMillis()} when the stopper first saw the server
+     * @return did the server go online or was it first seen less than the grace time ago
+     */
+    private boolean isInGracePeriod(ServerStatusListener listener, long seenAt) {
+        ServerStatusListener.StatusChange change = listener.getLastStatusChange();
+        long since = change != null && change.getNewStatus() == ServerStatus.ONLINE ? change.getTime() : seenAt;
+        return System.currentTimeMillis() - since < graceTime;
+    }
+
+    /**
+     * count players in the proxy, on the server itself and waiting in the switch queue
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     * @return number of players
+     */
+    private int getPlayerCount(Server server, String name) {
+        ServerInfo info = plugin.getProxy().getServers().get(name);
+        int proxyPlayers = info == null ? 0 : info.getPlayers().size();
+        ServerPlayerInfo playerInfo = server.getPlayerInfo();
+        int serverPlayers = playerInfo == null ? 0 : playerInfo.getCount();
+        return Math.max(proxyPlayers, serverPlayers) + plugin.getSwitchQueue().size(server.getId());
+    }
+
+    /**
+     * stop the server after all other pending tasks for it
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     */
+    private void stop(Server server, String name) {
+        plugin.getServerExecutor().execute(server.getId(), () -> {
+            Server current = plugin.findCachedServer(server.getId());
+            if (current == null || !current.hasStatus(ServerStatus.ONLINE) || this.getPlayerCount(current, name) > 0) {
+                return;
+            }
+
+            try {
+                logger.info("Stopping " + name + " because it has been empty for "
+                        + TimeUnit.NANOSECONDS.toMinutes(emptyTime) + " minutes");
+                plugin.getApiRequests().run(RateLimiter.Priority.BACKGROUND, ApiRequests.Endpoint.STOP, current::stop);
+            } catch (APIException e) {
+                logger.log(Level.WARNING, "Failed to stop idle server " + name, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.exaroton.bungee;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * histogram with fixed buckets for durations
+ * recording never allocates
+ */
+public class LatencyHistogram {
+
+    /**
+     * upper bounds of the buckets in milliseconds, the last bucket has no upper bound
+     */
+    private static final long[] BOUNDS = {100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000};
+
+    /**
+     * number of durations in each bucket (not cumulative)
+     */
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    /**
+     * total duration in nanoseconds
+     */
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param duration duration in nanoseconds
+     */
+    public void record(long duration) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(duration);
+        int bucket = 0;
+        while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sum.add(duration);
+    }
+
+    /**
+     * @return upper bounds of the buckets in milliseconds, the last bucket has no upper bound
+     */
+    public long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    /**
+     * @return number of durations in each bucket (not cumulative), one more than there are bounds
+     */
+    public long[] getCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return total duration in seconds
+     */
+    public double getSumSeconds() {
+        return sum.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
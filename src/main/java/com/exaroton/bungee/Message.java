@@ -110,6 +110,26 @@ public class Message {
         return new Message("Switching to " + ChatColor.GREEN + serverName + ChatColor.GRAY + "...");
     }
 
+    /**
+     * show that this player is waiting for a server to go online
+     * @param serverName server name in network
+     * @param position position in the queue
+     * @return message
+     */
+    public static Message queued(String serverName, int position) {
+        return new Message("Waiting for " + ChatColor.GREEN + serverName + ChatColor.GRAY + " to go online. You are number "
+                + ChatColor.GREEN + position + ChatColor.GRAY + " in the queue.");
+    }
+
+    /**
+     * list statistics
+     * @param lines statistics
+     * @return message
+     */
+    public static Message stats(Collection<String> lines) {
+        return new Message("Statistics:\n" + ChatColor.GRAY + String.join("\n" + ChatColor.GRAY, lines));
+    }
+
     /**
      * convert to text component
      * @return bungee text component
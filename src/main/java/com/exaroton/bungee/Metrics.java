@@ -0,0 +1,298 @@
+package com.exaroton.bungee;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * collects the metrics of the plugin components
+ * the components only count, everything else happens when the metrics are read
+ */
+public class Metrics implements MetricsMXBean {
+
+    /**
+     * requests to the exaroton API
+     */
+    private final ApiRequests requests;
+
+    /**
+     * server list cache
+     */
+    private final ServerCache cache;
+
+    /**
+     * per-server task executor
+     */
+    private final SerialExecutor serverExecutor;
+
+    /**
+     * switch queue
+     */
+    private final SwitchQueue switchQueue;
+
+    /**
+     * live view of the status listeners
+     */
+    private final Collection<ServerStatusListener> listeners;
+
+    /**
+     * time from a switch request until the player is connected
+     */
+    private final LatencyHistogram switchLatency;
+
+    /**
+     * @param requests       requests to the exaroton API
+     * @param cache          server list cache
+     * @param serverExecutor per-server task executor
+     * @param switchQueue    switch queue
+     * @param listeners      live view of the status listeners
+     * @param switchLatency  time from a switch request until the player is connected
+     */
+    public Metrics(ApiRequests requests, ServerCache cache, SerialExecutor serverExecutor, SwitchQueue switchQueue,
+                   Collection<ServerStatusListener> listeners, LatencyHistogram switchLatency) {
+        this.requests = requests;
+        this.cache = cache;
+        this.serverExecutor = serverExecutor;
+        this.switchQueue = switchQueue;
+        this.listeners = listeners;
+        this.switchLatency = switchLatency;
+    }
+
+    @Override
+    public Map<String, Long> getApiRequests() {
+        Map<String, Long> result = new TreeMap<>();
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            result.put(endpoint.getLabel(), requests.getStats(endpoint).getCount());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getApiFailures() {
+        Map<String, Long> result = new TreeMap<>();
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            result.put(endpoint.getLabel(), requests.getStats(endpoint).getFailures());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getApiAverageLatency() {
+        Map<String, Double> result = new TreeMap<>();
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            ApiRequests.Stats stats = requests.getStats(endpoint);
+            long count = stats.getCount();
+            result.put(endpoint.getLabel(), count == 0 ? 0 : stats.getTotalSeconds() * 1000 / count);
+        }
+        return result;
+    }
+
+    @Override
+    public long getApiRetries() {
+        return requests.getRetries();
+    }
+
+    @Override
+    public String getCircuitState() {
+        return requests.getCircuitBreaker().getState().name();
+    }
+
+    @Override
+    public Map<String, Integer> getRateLimitQueueDepths() {
+        Map<String, Integer> result = new TreeMap<>();
+        for (Map.Entry<RateLimiter.Priority, Integer> lane : requests.getRateLimiter().getQueueDepths().entrySet()) {
+            result.put(lane.getKey().name(), lane.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = cache.getHits(), total = hits + cache.getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public int getSubscriptions() {
+        return listeners.size();
+    }
+
+    @Override
+    public int getPendingWaiters() {
+        int waiters = 0;
+        for (ServerStatusListener listener : listeners) {
+            waiters += listener.getWaiterCount();
+        }
+        return waiters;
+    }
+
+    @Override
+    public int getPendingServerTasks() {
+        return serverExecutor.getPendingTasks();
+    }
+
+    @Override
+    public Map<String, Integer> getSwitchQueueLengths() {
+        return new TreeMap<>(switchQueue.sizes());
+    }
+
+    @Override
+    public Map<String, Long> getStartupTimes() {
+        Map<String, Long> result = new TreeMap<>();
+        for (ServerStatusListener listener : listeners) {
+            if (listener.getLastStartupTime() >= 0) {
+                result.put(listener.getName(listener.getServer()), listener.getLastStartupTime());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * write all metrics in the Prometheus text format (version 0.0.4)
+     * @param out output
+     */
+    public void writePrometheus(StringBuilder out) {
+        type(out, "exaroton_api_requests_total", "counter", "Requests to the exaroton API");
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            sample(out, "exaroton_api_requests_total", "endpoint", endpoint.getLabel(), requests.getStats(endpoint).getCount());
+        }
+        type(out, "exaroton_api_request_failures_total", "counter", "Failed requests to the exaroton API");
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            sample(out, "exaroton_api_request_failures_total", "endpoint", endpoint.getLabel(), requests.getStats(endpoint).getFailures());
+        }
+        type(out, "exaroton_api_request_duration_seconds", "summary", "Duration of requests to the exaroton API");
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            ApiRequests.Stats stats = requests.getStats(endpoint);
+            sample(out, "exaroton_api_request_duration_seconds_sum", "endpoint", endpoint.getLabel(), stats.getTotalSeconds());
+            sample(out, "exaroton_api_request_duration_seconds_count", "endpoint", endpoint.getLabel(), stats.getCount());
+        }
+        type(out, "exaroton_api_request_duration_seconds_max", "gauge", "Longest request to the exaroton API");
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            sample(out, "exaroton_api_request_duration_seconds_max", "endpoint", endpoint.getLabel(), requests.getStats(endpoint).getMaxSeconds());
+        }
+
+        type(out, "exaroton_api_requests_in_flight", "gauge", "Requests to the exaroton API that are currently sent");
+        sample(out, "exaroton_api_requests_in_flight", requests.getInFlight());
+        type(out, "exaroton_api_retries_total", "counter", "Retried requests to the exaroton API");
+        sample(out, "exaroton_api_retries_total", requests.getRetries());
+        type(out, "exaroton_api_rejected_total", "counter", "Requests rejected while the circuit breaker was open");
+        sample(out, "exaroton_api_rejected_total", requests.getRejected());
+        type(out, "exaroton_api_circuit_open", "gauge", "Is the circuit breaker open");
+        sample(out, "exaroton_api_circuit_open", requests.isUnavailable() ? 1 : 0);
+        type(out, "exaroton_api_circuit_opened_total", "counter", "Number of times the circuit breaker opened");
+        sample(out, "exaroton_api_circuit_opened_total", requests.getCircuitBreaker().getOpenCount());
+
+        RateLimiter rateLimiter = requests.getRateLimiter();
+        type(out, "exaroton_rate_limit_queue_depth", "gauge", "Requests waiting for the rate limiter");
+        for (Map.Entry<RateLimiter.Priority, Integer> lane : rateLimiter.getQueueDepths().entrySet()) {
+            sample(out, "exaroton_rate_limit_queue_depth", "priority", lane.getKey().name().toLowerCase(Locale.ROOT), lane.getValue());
+        }
+        type(out, "exaroton_rate_limit_throttled_total", "counter", "Requests that had to wait for the rate limiter");
+        sample(out, "exaroton_rate_limit_throttled_total", rateLimiter.getThrottled());
+        type(out, "exaroton_rate_limit_wait_seconds_total", "counter", "Total time requests waited for the rate limiter");
+        sample(out, "exaroton_rate_limit_wait_seconds_total", rateLimiter.getWaitTime() / 1000.0);
+
+        type(out, "exaroton_server_cache_hits_total", "counter", "Lookups answered from the server cache");
+        sample(out, "exaroton_server_cache_hits_total", cache.getHits());
+        type(out, "exaroton_server_cache_misses_total", "counter", "Lookups that had to wait for the server list");
+        sample(out, "exaroton_server_cache_misses_total", cache.getMisses());
+        type(out, "exaroton_server_cache_age_seconds", "gauge", "Age of the cached server list, -1 if there is none");
+        long age = cache.getAge();
+        sample(out, "exaroton_server_cache_age_seconds", age < 0 ? -1 : age / 1000.0);
+
+        type(out, "exaroton_subscriptions", "gauge", "Active status subscriptions");
+        sample(out, "exaroton_subscriptions", this.getSubscriptions());
+        type(out, "exaroton_status_waiters", "gauge", "Futures waiting for a server status");
+        sample(out, "exaroton_status_waiters", this.getPendingWaiters());
+        type(out, "exaroton_pending_server_tasks", "gauge", "Server tasks that haven't been run yet");
+        sample(out, "exaroton_pending_server_tasks", this.getPendingServerTasks());
+
+        type(out, "exaroton_switch_queue_length", "gauge", "Players waiting for a server to go online");
+        for (Map.Entry<String, Integer> queue : this.getSwitchQueueLengths().entrySet()) {
+            sample(out, "exaroton_switch_queue_length", "server_id", queue.getKey(), queue.getValue());
+        }
+
+        type(out, "exaroton_switch_duration_seconds", "histogram", "Time from a switch request until the player is connected");
+        long[] bounds = switchLatency.getBounds(), counts = switchLatency.getCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            sample(out, "exaroton_switch_duration_seconds_bucket", "le",
+                    i < bounds.length ? format(bounds[i] / 1000.0) : "+Inf", cumulative);
+        }
+        sample(out, "exaroton_switch_duration_seconds_sum", switchLatency.getSumSeconds());
+        sample(out, "exaroton_switch_duration_seconds_count", cumulative);
+
+        type(out, "exaroton_server_startup_seconds", "gauge", "Time the server needed to go online the last time");
+        for (Map.Entry<String, Long> startup : this.getStartupTimes().entrySet()) {
+            sample(out, "exaroton_server_startup_seconds", "server", startup.getKey(),
+                    startup.getValue() / (double) TimeUnit.SECONDS.toMillis(1));
+        }
+        type(out, "exaroton_server_startups_total", "counter", "Number of times the server went online while it was watched");
+        for (ServerStatusListener listener : listeners) {
+            sample(out, "exaroton_server_startups_total", "server", listener.getName(listener.getServer()), listener.getStartups());
+        }
+    }
+
+    /**
+     * @param out  output
+     * @param name metric name
+     * @param type metric type
+     * @param help description
+     */
+    private static void type(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * @param out   output
+     * @param name  metric name
+     * @param value value
+     */
+    private static void sample(StringBuilder out, String name, double value) {
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    /**
+     * @param out   output
+     * @param name  metric name
+     * @param label label name
+     * @param labelValue label value
+     * @param value value
+     */
+    private static void sample(StringBuilder out, String name, String label, String labelValue, double value) {
+        out.append(name).append('{').append(label).append("=\"");
+        for (int i = 0; i < labelValue.length(); i++) {
+            char c = labelValue.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        out.append("\"} ").append(format(value)).append('\n');
+    }
+
+    /**
+     * @param value value
+     * @return value without a fraction if it is a whole number
+     */
+    private static String format(double value) {
+        return value == (long) value ? Long.toString((long) value) : Double.toString(value);
+    }
+}
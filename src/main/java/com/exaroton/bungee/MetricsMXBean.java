@@ -0,0 +1,79 @@
+package com.exaroton.bungee;
+
+import java.util.Map;
+
+/**
+ * metrics exposed through JMX as com.exaroton.bungee:type=Metrics
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return endpoint -> number of requests to the exaroton API
+     */
+    Map<String, Long> getApiRequests();
+
+    /**
+     * @return endpoint -> number of failed requests to the exaroton API
+     */
+    Map<String, Long> getApiFailures();
+
+    /**
+     * @return endpoint -> average request duration in milliseconds
+     */
+    Map<String, Double> getApiAverageLatency();
+
+    /**
+     * @return number of retried requests
+     */
+    long getApiRetries();
+
+    /**
+     * @return circuit breaker state (CLOSED, OPEN or HALF_OPEN)
+     */
+    String getCircuitState();
+
+    /**
+     * @return priority -> number of requests waiting for the rate limiter
+     */
+    Map<String, Integer> getRateLimitQueueDepths();
+
+    /**
+     * @return number of lookups answered from the server cache
+     */
+    long getCacheHits();
+
+    /**
+     * @return number of lookups that had to wait for the server list
+     */
+    long getCacheMisses();
+
+    /**
+     * @return share of lookups answered from the server cache (0-1)
+     */
+    double getCacheHitRatio();
+
+    /**
+     * @return number of active status subscriptions
+     */
+    int getSubscriptions();
+
+    /**
+     * @return number of futures waiting for a server status
+     */
+    int getPendingWaiters();
+
+    /**
+     * @return number of server tasks that haven't been run yet
+     */
+    int getPendingServerTasks();
+
+    /**
+     * @return server id -> number of players waiting in the switch queue
+     */
+    Map<String, Integer> getSwitchQueueLengths();
+
+    /**
+     * @return server name -> milliseconds the server needed to go online the last time
+     */
+    Map<String, Long> getStartupTimes();
+}
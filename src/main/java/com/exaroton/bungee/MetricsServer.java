@@ -0,0 +1,110 @@
+package com.exaroton.bungee;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * local HTTP endpoint that serves the metrics in the Prometheus text format at /metrics
+ */
+public class MetricsServer {
+
+    /**
+     * content type of the Prometheus text format
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * metrics
+     */
+    private final Metrics metrics;
+
+    /**
+     * http server
+     */
+    private final HttpServer server;
+
+    /**
+     * single thread for requests, so scrapes never wait for or block plugin tasks
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "exaroton-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param metrics metrics
+     * @param host    host to listen on
+     * @param port    port to listen on
+     * @throws IOException the port can't be bound
+     */
+    public MetricsServer(Metrics metrics, String host, int port) throws IOException {
+        this.metrics = metrics;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (IOException e) {
+            executor.shutdown();
+            throw e;
+        }
+        this.server.createContext("/metrics", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * start accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * stop accepting requests
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return address the server listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @param exchange request
+     * @throws IOException exception writing the response
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            StringBuilder out = new StringBuilder(4096);
+            metrics.writePrometheus(out);
+            byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
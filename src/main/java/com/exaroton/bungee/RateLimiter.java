@@ -0,0 +1,256 @@
+package com.exaroton.bungee;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * token bucket for requests to the exaroton API
+ * waiting requests are served in the order of their priority, requests with the same priority in the order they arrived
+ */
+public class RateLimiter {
+
+    /**
+     * priority lanes, in the order they are served
+     */
+    public enum Priority {
+        /**
+         * commands from players and the console
+         */
+        INTERACTIVE,
+
+        /**
+         * plugin API calls and lookups someone is waiting for
+         */
+        DEFAULT,
+
+        /**
+         * background refreshes and startup tasks
+         */
+        BACKGROUND
+    }
+
+    /**
+     * tokens added per nanosecond, 0 for no limit
+     */
+    private final double tokensPerNano;
+
+    /**
+     * maximum number of stored tokens
+     */
+    private final double burst;
+
+    /**
+     * guards tokens and lanes
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * signalled when the first waiting request changes
+     */
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * currently available tokens
+     */
+    private double tokens;
+
+    /**
+     * {@link System#nanoTime()} when tokens were last added
+     */
+    private long refilledAt = System.nanoTime();
+
+    /**
+     * waiting threads for each priority
+     */
+    private final Map<Priority, Deque<Thread>> lanes = new EnumMap<>(Priority.class);
+
+    /**
+     * number of requests that were let through
+     */
+    private final LongAdder acquired = new LongAdder();
+
+    /**
+     * number of requests that had to wait
+     */
+    private final LongAdder throttled = new LongAdder();
+
+    /**
+     * total time in nanoseconds requests waited
+     */
+    private final LongAdder waited = new LongAdder();
+
+    /**
+     * @param requestsPerSecond maximum number of requests per second, 0 or less for no limit
+     * @param burst             maximum number of requests that can be sent at once after a quiet period
+     */
+    public RateLimiter(double requestsPerSecond, int burst) {
+        this.tokensPerNano = Math.max(0, requestsPerSecond) / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        for (Priority priority : Priority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * wait until a request with this priority can be sent
+     * @param priority priority of the request
+     * @throws InterruptedException the thread was interrupted while waiting
+     */
+    public void acquire(Priority priority) throws InterruptedException {
+        this.acquire(priority, true);
+    }
+
+    /**
+     * wait until a request with this priority can be sent
+     * if the thread is interrupted while waiting it keeps waiting and the interrupt flag is restored afterwards
+     * @param priority priority of the request
+     */
+    public void acquireUninterruptibly(Priority priority) {
+        try {
+            this.acquire(priority, false);
+        } catch (InterruptedException e) {
+            // not thrown when uninterruptible
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param priority      priority of the request
+     * @param interruptible stop waiting when the thread is interrupted
+     * @throws InterruptedException the thread was interrupted while waiting
+     */
+    private void acquire(Priority priority, boolean interruptible) throws InterruptedException {
+        if (tokensPerNano == 0) {
+            acquired.increment();
+            return;
+        }
+
+        Thread current = Thread.currentThread();
+        long start = System.nanoTime();
+        boolean interrupted = false;
+        lock.lock();
+        Deque<Thread> lane = lanes.get(priority);
+        lane.add(current);
+        try {
+            while (true) {
+                long wait = 0;
+                if (this.first() == current) {
+                    this.refill();
+                    if (tokens >= 1) {
+                        tokens -= 1;
+                        acquired.increment();
+                        return;
+                    }
+                    wait = Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+                }
+
+                try {
+                    if (wait > 0) {
+                        changed.awaitNanos(wait);
+                    } else {
+                        changed.await();
+                    }
+                } catch (InterruptedException e) {
+                    if (interruptible) {
+                        throw e;
+                    }
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lane.remove(current);
+            changed.signalAll();
+            lock.unlock();
+
+            long elapsed = System.nanoTime() - start;
+            if (elapsed >= TimeUnit.MILLISECONDS.toNanos(1)) {
+                throttled.increment();
+                waited.add(elapsed);
+            }
+            if (interrupted) {
+                current.interrupt();
+            }
+        }
+    }
+
+    /**
+     * add the tokens that accumulated since the last refill
+     * must be called while holding the lock
+     */
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    /**
+     * must be called while holding the lock
+     * @return thread that is served next
+     */
+    private Thread first() {
+        for (Deque<Thread> lane : lanes.values()) {
+            Thread thread = lane.peek();
+            if (thread != null) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param priority priority lane
+     * @return number of requests waiting in this lane
+     */
+    public int getQueueDepth(Priority priority) {
+        lock.lock();
+        try {
+            return lanes.get(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return priority -> number of waiting requests
+     */
+    public Map<Priority, Integer> getQueueDepths() {
+        Map<Priority, Integer> depths = new EnumMap<>(Priority.class);
+        lock.lock();
+        try {
+            for (Map.Entry<Priority, Deque<Thread>> lane : lanes.entrySet()) {
+                depths.put(lane.getKey(), lane.getValue().size());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return depths;
+    }
+
+    /**
+     * @return number of requests that were let through
+     */
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    /**
+     * @return number of requests that had to wait
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * @return total time in milliseconds requests waited
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waited.sum());
+    }
+}
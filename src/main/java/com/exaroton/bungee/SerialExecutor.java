@@ -0,0 +1,203 @@
+package com.exaroton.bungee;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * runs tasks with the same key (server id) one after another in the order they were submitted
+ * tasks with different keys run in parallel on a shared executor
+ * threads waiting for a task run the pending tasks of its key themselves, so waiting never needs a free thread
+ */
+public class SerialExecutor {
+
+    /**
+     * shared executor
+     */
+    private final Executor executor;
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * key -> pending tasks
+     */
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor shared executor
+     * @param logger   logger for failed tasks
+     */
+    public SerialExecutor(Executor executor, Logger logger) {
+        this.executor = executor;
+        this.logger = logger;
+    }
+
+    /**
+     * run a task after all previously submitted tasks with the same key
+     * @param key  server id
+     * @param task task
+     */
+    public void execute(String key, Runnable task) {
+        mailboxes.computeIfAbsent(key, Mailbox::new).add(task);
+    }
+
+    /**
+     * run a task after all previously submitted tasks with the same key
+     * if the calling thread is already running a task with this key the task is run immediately
+     * @param key  server id
+     * @param task task
+     * @return future that completes with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(String key, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable runnable = () -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        Mailbox mailbox = mailboxes.computeIfAbsent(key, Mailbox::new);
+        if (mailbox.owner.get() == Thread.currentThread()) {
+            runnable.run();
+        } else {
+            mailbox.add(runnable);
+        }
+        return future;
+    }
+
+    /**
+     * wait for a task that was submitted with this key
+     * instead of waiting for a thread of the shared executor, the pending tasks are run on the calling thread
+     * @param key    server id
+     * @param future future returned by {@link #submit(String, Callable)}
+     * @return result of the task
+     * @throws CompletionException the task failed
+     */
+    public <T> T join(String key, CompletableFuture<T> future) {
+        Mailbox mailbox = mailboxes.computeIfAbsent(key, Mailbox::new);
+        boolean interrupted = false;
+        while (!future.isDone()) {
+            if (mailbox.drain(future::isDone)) {
+                continue;
+            }
+
+            // another thread is running the tasks of this key
+            try {
+                future.get(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException | TimeoutException ignored) {
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return future.join();
+    }
+
+    /**
+     * @return number of tasks that haven't been run yet
+     */
+    public int getPendingTasks() {
+        int pending = 0;
+        for (Mailbox mailbox : mailboxes.values()) {
+            pending += mailbox.tasks.size();
+        }
+        return pending;
+    }
+
+    private class Mailbox implements Runnable {
+
+        /**
+         * server id
+         */
+        private final String key;
+
+        /**
+         * pending tasks
+         */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        /**
+         * is this mailbox scheduled on the shared executor
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        /**
+         * thread that is currently running the tasks of this mailbox
+         */
+        private final AtomicReference<Thread> owner = new AtomicReference<>();
+
+        private Mailbox(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @param task task to add
+         */
+        private void add(Runnable task) {
+            tasks.add(task);
+            this.schedule();
+        }
+
+        /**
+         * schedule this mailbox unless it's already scheduled or empty
+         */
+        private void schedule() {
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    logger.log(Level.SEVERE, "Failed to run tasks for " + key, e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            scheduled.set(false);
+            this.drain(() -> false);
+        }
+
+        /**
+         * run pending tasks on the calling thread unless another thread is already running them
+         * @param done stop once this returns true
+         * @return were the tasks run by the calling thread
+         */
+        private boolean drain(BooleanSupplier done) {
+            if (!owner.compareAndSet(null, Thread.currentThread())) {
+                return false;
+            }
+
+            try {
+                Runnable task;
+                while (!done.getAsBoolean() && (task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        logger.log(Level.SEVERE, "Failed to run task for " + key, e);
+                    }
+                }
+            } finally {
+                owner.set(null);
+            }
+            // a task might have been added after the queue was empty but before the owner was cleared
+            this.schedule();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.ExarotonClient;
+import com.exaroton.api.server.Server;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * stale-while-revalidate cache for the exaroton server list
+ * all concurrent callers share a single in-flight request
+ */
+public class ServerCache {
+
+    /**
+     * exaroton API client
+     */
+    private final ExarotonClient client;
+
+    /**
+     * executor for background refreshes
+     * callers wait for refreshes, so it must not be an executor that runs tasks which look up servers
+     */
+    private final Executor executor;
+
+    /**
+     * sends requests to the API
+     */
+    private final ApiRequests requests;
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * age in nanoseconds after which the server list is refreshed in the background
+     */
+    private final long refreshAfter;
+
+    /**
+     * age in nanoseconds after which the server list has to be fetched again before it is used
+     */
+    private final long ttl;
+
+    /**
+     * last successfully fetched server list
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * currently running request
+     */
+    private final AtomicReference<Request> inFlight = new AtomicReference<>();
+
+    /**
+     * server id -> latest update since the last request started
+     * re-applied to a fetched server list, so updates that arrive while the request is running aren't lost
+     */
+    private final Map<String, Update> recentUpdates = new ConcurrentHashMap<>();
+
+    /**
+     * number of updates, used to detect updates while a fetched server list is stored
+     */
+    private final AtomicLong updateCount = new AtomicLong();
+
+    /**
+     * number of lookups answered from the cache
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * number of lookups that had to wait for a request
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * optional listener for changes to the server list
+     */
+    private volatile Listener listener;
+
+    /**
+     * @param client       exaroton API client
+     * @param executor     executor for background refreshes
+     * @param requests     sends requests to the API
+     * @param logger       logger
+     * @param refreshAfter seconds after which the server list is refreshed in the background
+     * @param ttl          seconds after which the server list expires
+     */
+    public ServerCache(ExarotonClient client, Executor executor, ApiRequests requests, Logger logger, long refreshAfter, long ttl) {
+        this.client = client;
+        this.executor = executor;
+        this.requests = requests;
+        this.logger = logger;
+        this.ttl = TimeUnit.SECONDS.toNanos(Math.max(1, ttl));
+        this.refreshAfter = Math.min(TimeUnit.SECONDS.toNanos(Math.max(0, refreshAfter)), this.ttl);
+    }
+
+    /**
+     * get the cached server list
+     * stale entries are served while a background refresh runs,
+     * expired entries are only served if the refresh fails
+     * @return server index
+     * @throws APIException the server list isn't cached and can't be fetched
+     */
+    public ServerIndex get() throws APIException {
+        return this.get(RateLimiter.Priority.DEFAULT);
+    }
+
+    /**
+     * get the cached server list
+     * stale entries are served while a background refresh runs,
+     * expired entries are only served if the refresh fails
+     * @param priority priority of the request if the server list has to be fetched before it can be used
+     * @return server index
+     * @throws APIException the server list isn't cached and can't be fetched
+     */
+    public ServerIndex get(RateLimiter.Priority priority) throws APIException {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            misses.increment();
+            return this.refresh(priority);
+        }
+
+        long age = current.getAge();
+        if (age < refreshAfter) {
+            hits.increment();
+            return current.index;
+        }
+
+        if (age < ttl) {
+            this.refreshAsync();
+            hits.increment();
+            return current.index;
+        }
+
+        misses.increment();
+        try {
+            return this.refresh(priority);
+        } catch (APIException e) {
+            logger.log(Level.WARNING, "Failed to refresh server list, using expired server list", e);
+            return current.index;
+        }
+    }
+
+    /**
+     * get the cached server list if it isn't older than maxAge, otherwise fetch it
+     * @param maxAge maximum age of the server list
+     * @param unit   time unit of maxAge
+     * @return server index
+     * @throws APIException the server list is too old and can't be fetched
+     */
+    public ServerIndex get(long maxAge, TimeUnit unit) throws APIException {
+        return this.get(maxAge, unit, RateLimiter.Priority.DEFAULT);
+    }
+
+    /**
+     * get the cached server list if it isn't older than maxAge, otherwise fetch it
+     * @param maxAge   maximum age of the server list
+     * @param unit     time unit of maxAge
+     * @param priority priority of the request if the server list has to be fetched
+     * @return server index
+     * @throws APIException the server list is too old and can't be fetched
+     */
+    public ServerIndex get(long maxAge, TimeUnit unit, RateLimiter.Priority priority) throws APIException {
+        Snapshot current = snapshot.get();
+        if (current != null && current.getAge() <= unit.toNanos(maxAge)) {
+            hits.increment();
+            return current.index;
+        }
+        misses.increment();
+        return this.refresh(priority);
+    }
+
+    /**
+     * get the cached server list without ever waiting for a request
+     * starts a background refresh if the server list is stale or missing
+     * @return server index or null if no server list has been fetched yet
+     */
+    public ServerIndex getIfPresent() {
+        Snapshot current = snapshot.get();
+        if (current == null || current.getAge() >= refreshAfter) {
+            this.refreshAsync();
+        }
+        if (current == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return current.index;
+    }
+
+    /**
+     * get the cached server list without triggering a refresh
+     * @return server index or null if no server list has been fetched yet
+     */
+    public ServerIndex peek() {
+        Snapshot current = snapshot.get();
+        return current == null ? null : current.index;
+    }
+
+    /**
+     * fetch the server list now or wait for the request that is already running
+     * @return server index
+     * @throws APIException exceptions from the API
+     */
+    public ServerIndex refresh() throws APIException {
+        return this.refresh(RateLimiter.Priority.DEFAULT);
+    }
+
+    /**
+     * fetch the server list now or wait for the request that is already running
+     * a running request with a lower priority isn't waited for, the server list is requested with this priority instead
+     * @param priority priority of the request
+     * @return server index
+     * @throws APIException exceptions from the API
+     */
+    public ServerIndex refresh(RateLimiter.Priority priority) throws APIException {
+        while (true) {
+            Request running = inFlight.get();
+            if (running != null && running.priority.compareTo(priority) <= 0) {
+                return await(running.future);
+            }
+
+            Request request = new Request(priority);
+            if (inFlight.compareAndSet(running, request)) {
+                this.fetch(request);
+                return await(request.future);
+            }
+        }
+    }
+
+    /**
+     * fetch the server list in the background unless a request is already running
+     * @return future that completes with the fetched server list
+     */
+    public CompletableFuture<ServerIndex> refreshAsync() {
+        Request request = new Request(RateLimiter.Priority.BACKGROUND);
+        Request running = inFlight.compareAndExchange(null, request);
+        if (running != null) {
+            return running.future;
+        }
+
+        // retries are scheduled on the executor, so no thread is blocked while waiting for the next attempt
+        requests.callAsync(request.priority, ApiRequests.Endpoint.SERVERS, request::send, executor)
+                .whenComplete((servers, e) -> {
+                    if (e != null) {
+                        this.fail(request, e);
+                    } else {
+                        this.store(request, servers);
+                    }
+                });
+        return request.future;
+    }
+
+    /**
+     * replace a server in the cached server list with an updated version
+     * @param server updated server
+     */
+    public void update(Server server) {
+        recentUpdates.put(server.getId(), new Update(server, System.nanoTime()));
+        updateCount.incrementAndGet();
+
+        Snapshot current, updated;
+        do {
+            current = snapshot.get();
+            if (current == null) return;
+            ServerIndex index = current.index.update(server);
+            updated = index == current.index ? current : new Snapshot(index, current.fetchedAt);
+        } while (updated != current && !snapshot.compareAndSet(current, updated));
+
+        Listener listener = this.listener;
+        if (listener != null) {
+            listener.updated(this.peek(), server);
+        }
+    }
+
+    /**
+     * @param listener listener for changes to the server list
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * forget the cached server list
+     */
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    /**
+     * @return age of the cached server list in milliseconds or -1 if there is none
+     */
+    public long getAge() {
+        Snapshot current = snapshot.get();
+        return current == null ? -1 : TimeUnit.NANOSECONDS.toMillis(current.getAge());
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that had to wait for a request or found no server list
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * request the server list on the calling thread and complete the future of the request
+     * @param request in-flight request
+     */
+    private void fetch(Request request) {
+        Server[] servers;
+        try {
+            servers = requests.call(request.priority, ApiRequests.Endpoint.SERVERS, request::send);
+        } catch (Throwable e) {
+            this.fail(request, e);
+            return;
+        }
+        this.store(request, servers);
+    }
+
+    /**
+     * replace the cached server list with the fetched one and complete the future of the request
+     * a response to a request that was sent before the cached server list was fetched is dropped,
+     * e.g. if a request with a higher priority was sent while this one was running
+     * @param request finished request
+     * @param servers fetched server list
+     */
+    private void store(Request request, Server[] servers) {
+        try {
+            long sentAt = request.sentAt;
+            ServerIndex fetched = new ServerIndex(servers);
+            recentUpdates.values().removeIf(update -> update.time - sentAt < 0);
+            long count;
+            Snapshot current, stored;
+            do {
+                // updates read the snapshot after counting themselves, so they either see the new snapshot or are re-applied here
+                count = updateCount.get();
+                current = snapshot.get();
+                if (current != null && current.fetchedAt - sentAt > 0) {
+                    // a newer server list was stored in the meantime
+                    stored = null;
+                    break;
+                }
+
+                ServerIndex index = fetched;
+                for (Update update : recentUpdates.values()) {
+                    index = index.update(update.server);
+                }
+                stored = new Snapshot(index, sentAt);
+            } while (!snapshot.compareAndSet(current, stored) || count != updateCount.get());
+            inFlight.compareAndSet(request, null);
+
+            if (stored == null) {
+                request.future.complete(current.index);
+                return;
+            }
+            Listener listener = this.listener;
+            if (listener != null) {
+                listener.refreshed(this.peek());
+            }
+            request.future.complete(stored.index);
+        } catch (Throwable e) {
+            this.fail(request, e);
+        }
+    }
+
+    /**
+     * @param request failed request
+     * @param e       reason the request failed
+     */
+    private void fail(Request request, Throwable e) {
+        inFlight.compareAndSet(request, null);
+        request.future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+    }
+
+    /**
+     * wait for a request and unwrap API exceptions
+     * @param future request future
+     * @return server index
+     * @throws APIException exceptions from the API
+     */
+    private static ServerIndex await(CompletableFuture<ServerIndex> future) throws APIException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof APIException) {
+                throw (APIException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new APIException("Failed to fetch server list", cause);
+        }
+    }
+
+    /**
+     * listener for changes to the server list
+     * listeners can be called concurrently and out of order from different threads,
+     * the server list they receive might already have been replaced, use {@link #peek()} for the latest one
+     */
+    public interface Listener {
+
+        /**
+         * the server list was fetched again
+         * @param index fetched server list
+         */
+        void refreshed(ServerIndex index);
+
+        /**
+         * a server in the server list was updated
+         * @param index  server list containing the update
+         * @param server updated server
+         */
+        void updated(ServerIndex index, Server server);
+    }
+
+    private class Request {
+
+        /**
+         * completes with the fetched server list
+         */
+        private final CompletableFuture<ServerIndex> future = new CompletableFuture<>();
+
+        /**
+         * priority of the request
+         */
+        private final RateLimiter.Priority priority;
+
+        /**
+         * {@link System#nanoTime()} when the last attempt was sent
+         */
+        private volatile long sentAt;
+
+        private Request(RateLimiter.Priority priority) {
+            this.priority = priority;
+        }
+
+        /**
+         * request the server list
+         * @return server list
+         * @throws APIException exceptions from the API
+         */
+        private Server[] send() throws APIException {
+            sentAt = System.nanoTime();
+            return client.getServers();
+        }
+    }
+
+    private static class Update {
+
+        /**
+         * updated server
+         */
+        private final Server server;
+
+        /**
+         * {@link System#nanoTime()} when the update was applied
+         */
+        private final long time;
+
+        private Update(Server server, long time) {
+            this.server = server;
+            this.time = time;
+        }
+    }
+
+    private static class Snapshot {
+
+        /**
+         * cached server list
+         */
+        private final ServerIndex index;
+
+        /**
+         * {@link System#nanoTime()} when the server list was fetched
+         */
+        private final long fetchedAt;
+
+        private Snapshot(ServerIndex index, long fetchedAt) {
+            this.index = index;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /**
+         * @return age in nanoseconds
+         */
+        private long getAge() {
+            return System.nanoTime() - fetchedAt;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import net.md_5.bungee.api.config.ListenerInfo;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.ServerConnectEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
+
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * starts offline exaroton servers from the bungee config when players connect to them
+ * (e.g. with /server, forced hosts or fallback servers)
+ * the connection is cancelled and the player waits in the switch queue until the server is online
+ * the cached status is only up to date for watched servers, other servers are requested again before the player is queued
+ * connections to server pools are sent to the selected member of the pool
+ */
+public class ServerConnectListener implements Listener {
+
+    /**
+     * exaroton plugin
+     */
+    private final ExarotonPlugin plugin;
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * start offline servers from the bungee config
+     */
+    private final boolean startOnConnect;
+
+    /**
+     * @param plugin         exaroton plugin
+     * @param startOnConnect start offline servers from the bungee config
+     */
+    public ServerConnectListener(ExarotonPlugin plugin, boolean startOnConnect) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.startOnConnect = startOnConnect;
+    }
+
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onServerConnect(ServerConnectEvent event) {
+        ServerInfo target = event.getTarget();
+        if (event.isCancelled() || target == null) {
+            return;
+        }
+
+        if (plugin.getServerPools().isPool(target.getName())) {
+            this.connectToPool(event, target);
+            return;
+        }
+
+        String address = startOnConnect ? plugin.findServerAddress(target.getName()) : null;
+        if (address == null) {
+            return;
+        }
+
+        // this runs on a network thread, so only the cached server list is used
+        Server server = plugin.findCachedServer(address);
+        if (server == null) {
+            return;
+        }
+        if (!SwitchQueue.isRequired(server)) {
+            if (!plugin.isWatched(server)) {
+                // keep the status up to date for the next connection
+                plugin.getExecutor().execute(() -> plugin.listenToStatus(server, null, target.getName(), -1,
+                        plugin.isRestricted(target.getName())));
+            }
+            return;
+        }
+
+        this.hold(event, target, server, target.getName());
+    }
+
+    /**
+     * send the player to the selected member of the pool
+     * @param event connect event
+     * @param pool  placeholder server of the pool
+     */
+    private void connectToPool(ServerConnectEvent event, ServerInfo pool) {
+        ProxiedPlayer player = event.getPlayer();
+        Server server = plugin.getServerPools().select(pool.getName());
+        if (server == null) {
+            ServerInfo fallback = player.getServer() == null ? this.findFallback(player, pool) : null;
+            if (fallback == null) {
+                event.setCancelled(true);
+                player.sendMessage(Message.error("No server in pool " + pool.getName() + " is available.").toComponent());
+            } else {
+                event.setTarget(fallback);
+            }
+            return;
+        }
+
+        String name = plugin.findServerName(server.getAddress(), server.getName());
+        if (SwitchQueue.isRequired(server)) {
+            this.hold(event, pool, server, name);
+            return;
+        }
+
+        ServerInfo info = plugin.getOrAddToProxy(name, server, plugin.isRestricted(name));
+        event.setTarget(info);
+        if (player.getServer() == null || !player.getServer().getInfo().getName().equals(name)) {
+            plugin.getServerPools().reserve(server);
+        }
+    }
+
+    /**
+     * keep the player away from the server until it is online
+     * @param event  connect event
+     * @param target server the player wants to join
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     */
+    private void hold(ServerConnectEvent event, ServerInfo target, Server server, String name) {
+        ProxiedPlayer player = event.getPlayer();
+        if (player.getServer() == null) {
+            // players joining the proxy can't be held without a server, send them to a fallback in the meantime
+            ServerInfo fallback = this.findFallback(player, target);
+            if (fallback == null) {
+                // the connection fails, but the server is online when the player tries again
+                this.start(server, name);
+                return;
+            }
+            event.setTarget(fallback);
+        }
+        else {
+            event.setCancelled(true);
+        }
+
+        plugin.getExecutor().execute(() -> this.queue(player, target, server, name));
+    }
+
+    /**
+     * add the player to the switch queue of the server, which starts it if necessary
+     * @param player player to move
+     * @param target server the player wants to join
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     */
+    private void queue(ProxiedPlayer player, ServerInfo target, Server server, String name) {
+        try {
+            Server current = this.watch(server, name);
+            if (current == null) {
+                return;
+            }
+            if (!SwitchQueue.isRequired(current)) {
+                // the cached status was outdated
+                player.connect(target);
+                return;
+            }
+
+            SwitchQueue.Entry entry = plugin.getSwitchQueue().add(player, current);
+            player.sendMessage(Message.queued(name, entry.getPosition()).toComponent());
+            entry.getFuture().whenComplete((ignored, e) -> {
+                if (e == null || e instanceof CancellationException) {
+                    return;
+                }
+                logger.log(Level.SEVERE, "Failed to move " + player.getName() + " to " + name, e);
+                player.sendMessage(Message.error("Failed to start " + name + ". Check your console for details.").toComponent());
+            });
+        } catch (APIException e) {
+            logger.log(Level.WARNING, "Failed to request the status of " + name, e);
+            player.sendMessage(Message.error("Failed to start " + name + ". Check your console for details.").toComponent());
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Failed to queue " + player.getName() + " for " + name, e);
+        }
+    }
+
+    /**
+     * watch the status of the server and get its current state
+     * servers that weren't watched yet are requested again, because their cached status can be outdated
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     * @return current server or null if it doesn't exist anymore
+     * @throws APIException exception requesting the server
+     */
+    private Server watch(Server server, String name) throws APIException {
+        Server current = plugin.isWatched(server) ? plugin.findCachedServer(server.getId())
+                : plugin.findServer(server.getId(), true, RateLimiter.Priority.INTERACTIVE);
+        if (current != null) {
+            plugin.listenToStatus(current, null, name, -1, plugin.isRestricted(name));
+        }
+        return current;
+    }
+
+    /**
+     * start the server without waiting players
+     * @param server exaroton server
+     * @param name   server name in the proxy
+     */
+    private void start(Server server, String name) {
+        plugin.getServerExecutor().execute(server.getId(), () -> {
+            try {
+                // the server might have been started by an earlier connection in the meantime
+                Server current = this.watch(server, name);
+                if (current == null || !current.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                    return;
+                }
+
+                logger.info("Starting " + name + " for a connecting player");
+                plugin.getApiRequests().run(RateLimiter.Priority.INTERACTIVE, ApiRequests.Endpoint.START, current::start);
+            } catch (APIException e) {
+                logger.log(Level.WARNING, "Failed to start " + name, e);
+            }
+        });
+    }
+
+    /**
+     * find a server the player can join until the target is online
+     * @param player joining player
+     * @param target exaroton server the player wants to join
+     * @return first server from the priorities of the player's listener that isn't an offline exaroton server or a pool or null
+     */
+    private ServerInfo findFallback(ProxiedPlayer player, ServerInfo target) {
+        ListenerInfo listener = player.getPendingConnection() == null ? null : player.getPendingConnection().getListener();
+        if (listener == null) {
+            return null;
+        }
+
+        for (String name : listener.getServerPriority()) {
+            ServerInfo info = plugin.getProxy().getServerInfo(name);
+            if (info == null || name.equals(target.getName()) || plugin.getServerPools().isPool(name)) {
+                continue;
+            }
+
+            String address = plugin.findServerAddress(name);
+            Server server = address == null ? null : plugin.findCachedServer(address);
+            if (server == null || !SwitchQueue.isRequired(server)) {
+                return info;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * lookup index over a server list
+ * the lookup keys (ids, names and addresses) never change, but the server cache replaces servers in place
+ * as long as their name and address stay the same, otherwise it creates a new index
+ * reading a single server is thread-safe and always returns its latest version,
+ * reading several servers (e.g. {@link #getServers()}) can return a mix of servers from before and after an update
+ */
+public class ServerIndex {
+
+    /**
+     * servers in the order returned by the API
+     */
+    private final AtomicReferenceArray<Server> servers;
+
+    /**
+     * server names and addresses at the time the index was built
+     * used to detect if an update changes one of the lookup keys
+     */
+    private final String[] names, addresses;
+
+    /**
+     * server id -> slot
+     */
+    private final Map<String, Integer> byId;
+
+    /**
+     * lowercase server name -> first slot with that name
+     */
+    private final Map<String, Integer> byName;
+
+    /**
+     * lowercase server address -> first slot with that address
+     */
+    private final Map<String, Integer> byAddress;
+
+    /**
+     * @param servers server list
+     */
+    public ServerIndex(Server[] servers) {
+        int size = servers.length;
+        this.servers = new AtomicReferenceArray<>(servers);
+        this.names = new String[size];
+        this.addresses = new String[size];
+        Map<String, Integer> byId = new HashMap<>(size * 2);
+        Map<String, Integer> byName = new HashMap<>(size * 2);
+        Map<String, Integer> byAddress = new HashMap<>(size * 2);
+
+        for (int slot = 0; slot < size; slot++) {
+            Server server = servers[slot];
+            names[slot] = server.getName();
+            addresses[slot] = server.getAddress();
+            byId.putIfAbsent(server.getId(), slot);
+            byName.putIfAbsent(server.getName().toLowerCase(Locale.ROOT), slot);
+            byAddress.putIfAbsent(server.getAddress().toLowerCase(Locale.ROOT), slot);
+        }
+
+        this.byId = Collections.unmodifiableMap(byId);
+        this.byName = Collections.unmodifiableMap(byName);
+        this.byAddress = Collections.unmodifiableMap(byAddress);
+    }
+
+    /**
+     * @return number of servers in this index
+     */
+    public int size() {
+        return servers.length();
+    }
+
+    /**
+     * @param slot position in the server list
+     * @return server at this position
+     */
+    public Server get(int slot) {
+        return servers.get(slot);
+    }
+
+    /**
+     * @return copy of the current server list
+     */
+    public Server[] getServers() {
+        Server[] result = new Server[servers.length()];
+        for (int slot = 0; slot < result.length; slot++) {
+            result[slot] = servers.get(slot);
+        }
+        return result;
+    }
+
+    /**
+     * @param id server id
+     * @return server with this id or null
+     */
+    public Server getById(String id) {
+        Integer slot = byId.get(id);
+        return slot == null ? null : servers.get(slot);
+    }
+
+    /**
+     * @param id server id
+     * @return slot of the server with this id or -1
+     */
+    public int slotOf(String id) {
+        Integer slot = byId.get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * find a server by its exact id, name or address (case-insensitive)
+     * if a server can't be uniquely identified then the id will be preferred,
+     * otherwise the server that comes first in the server list
+     * @param query server name, address or id
+     * @return found server or null
+     */
+    public Server find(String query) {
+        Integer slot = byId.get(query);
+        if (slot != null) {
+            return servers.get(slot);
+        }
+
+        String lowerCaseQuery = query.toLowerCase(Locale.ROOT);
+        Integer nameSlot = byName.get(lowerCaseQuery);
+        Integer addressSlot = byAddress.get(lowerCaseQuery);
+        if (nameSlot == null && addressSlot == null) {
+            return null;
+        }
+        if (nameSlot == null || (addressSlot != null && addressSlot < nameSlot)) {
+            return servers.get(addressSlot);
+        }
+        return servers.get(nameSlot);
+    }
+
+    /**
+     * replace a server with an updated version
+     * the server is replaced in place, so readers of this index see the update as well
+     * @param server updated server
+     * @return this index if the server was replaced in place or is unknown, otherwise a rebuilt index
+     */
+    ServerIndex update(Server server) {
+        Integer slot = byId.get(server.getId());
+        if (slot == null) {
+            return this;
+        }
+
+        if (names[slot].equals(server.getName()) && addresses[slot].equals(server.getAddress())) {
+            servers.set(slot, server);
+            return this;
+        }
+
+        Server[] updated = getServers();
+        updated[slot] = server;
+        return new ServerIndex(updated);
+    }
+}
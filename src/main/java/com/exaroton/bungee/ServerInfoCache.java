@@ -0,0 +1,234 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.config.ServerInfo;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * caches resolved server hosts and bungee server infos
+ * host names are resolved asynchronously, server infos are reused as long as address, motd and restricted flag are unchanged
+ */
+public class ServerInfoCache {
+
+    /**
+     * bungee proxy
+     */
+    private final ProxyServer proxy;
+
+    /**
+     * executor for DNS lookups
+     */
+    private final Executor executor;
+
+    /**
+     * time in nanoseconds a resolved address is used
+     */
+    private final long ttl;
+
+    /**
+     * host -> resolved address
+     */
+    private final Map<String, ResolvedAddress> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * host -> running DNS lookup
+     */
+    private final Map<String, CompletableFuture<InetAddress>> resolving = new ConcurrentHashMap<>();
+
+    /**
+     * bungee server name -> last constructed server info
+     */
+    private final Map<String, CachedServerInfo> serverInfos = new ConcurrentHashMap<>();
+
+    /**
+     * @param proxy    bungee proxy
+     * @param executor executor for DNS lookups
+     * @param ttl      time in seconds a resolved address is used
+     */
+    public ServerInfoCache(ProxyServer proxy, Executor executor, long ttl) {
+        this.proxy = proxy;
+        this.executor = executor;
+        this.ttl = TimeUnit.SECONDS.toNanos(ttl);
+    }
+
+    /**
+     * get a server info for this server without waiting for a DNS lookup
+     * if the host hasn't been resolved yet an unresolved address is used and the host is resolved in the background
+     * @param name       server name in network
+     * @param server     exaroton server
+     * @param restricted restricted
+     * @return bungee server info
+     */
+    public ServerInfo get(String name, Server server, boolean restricted) {
+        return this.get(name, server.getHost(), server.getPort(), server.getMotd(), restricted);
+    }
+
+    /**
+     * get a server info for this address without waiting for a DNS lookup
+     * if the host hasn't been resolved yet an unresolved address is used and the host is resolved in the background
+     * @param name       server name in network
+     * @param host       server host
+     * @param port       server port
+     * @param motd       server motd
+     * @param restricted restricted
+     * @return bungee server info
+     */
+    public ServerInfo get(String name, String host, int port, String motd, boolean restricted) {
+        InetAddress address = this.getResolved(host);
+        if (address == null) {
+            this.resolve(host);
+        }
+        return this.get(name, host, port, motd, restricted, address);
+    }
+
+    /**
+     * get a server info for this server after resolving its host
+     * @param name       server name in network
+     * @param server     exaroton server
+     * @param restricted restricted
+     * @return future that completes with the bungee server info
+     */
+    public CompletableFuture<ServerInfo> getAsync(String name, Server server, boolean restricted) {
+        return this.resolve(server.getHost())
+                .handle((address, e) -> this.get(name, server.getHost(), server.getPort(), server.getMotd(), restricted, address));
+    }
+
+    /**
+     * resolve a host in the background
+     * @param host host name
+     * @return future that completes with the resolved address
+     */
+    public CompletableFuture<InetAddress> resolve(String host) {
+        if (host == null) {
+            return CompletableFuture.failedFuture(new UnknownHostException("Server has no host"));
+        }
+
+        InetAddress cached = this.getResolved(host);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<InetAddress> future = new CompletableFuture<>();
+        CompletableFuture<InetAddress> running = resolving.putIfAbsent(host, future);
+        if (running != null) {
+            return running;
+        }
+
+        executor.execute(() -> {
+            try {
+                InetAddress address = InetAddress.getByName(host);
+                addresses.put(host, new ResolvedAddress(address, System.nanoTime()));
+                future.complete(address);
+            } catch (UnknownHostException | RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                resolving.remove(host, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @param host host name
+     * @return resolved address or null if it isn't cached or expired
+     */
+    private InetAddress getResolved(String host) {
+        ResolvedAddress resolved = host == null ? null : addresses.get(host);
+        if (resolved == null || System.nanoTime() - resolved.resolvedAt > ttl) {
+            return null;
+        }
+        return resolved.address;
+    }
+
+    /**
+     * @param name       server name in network
+     * @param host       server host
+     * @param port       server port
+     * @param motd       server motd
+     * @param restricted restricted
+     * @param address    resolved address or null
+     * @return cached or new server info
+     */
+    private ServerInfo get(String name, String host, int port, String motd, boolean restricted, InetAddress address) {
+        CachedServerInfo cached = serverInfos.get(name);
+        if (cached != null && cached.matches(host, port, motd, restricted, address)) {
+            return cached.info;
+        }
+
+        InetSocketAddress socketAddress = address == null ?
+                InetSocketAddress.createUnresolved(host, port) :
+                new InetSocketAddress(address, port);
+        ServerInfo info = proxy.constructServerInfo(name, socketAddress, motd, restricted);
+        serverInfos.put(name, new CachedServerInfo(host, port, motd, restricted, address != null, info));
+        return info;
+    }
+
+    private static class ResolvedAddress {
+
+        /**
+         * resolved address
+         */
+        private final InetAddress address;
+
+        /**
+         * {@link System#nanoTime()} when the host was resolved
+         */
+        private final long resolvedAt;
+
+        private ResolvedAddress(InetAddress address, long resolvedAt) {
+            this.address = address;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private static class CachedServerInfo {
+
+        /**
+         * values the server info was constructed from
+         */
+        private final String host, motd;
+        private final int port;
+        private final boolean restricted, resolved;
+
+        /**
+         * bungee server info
+         */
+        private final ServerInfo info;
+
+        private CachedServerInfo(String host, int port, String motd, boolean restricted, boolean resolved, ServerInfo info) {
+            this.host = host;
+            this.port = port;
+            this.motd = motd;
+            this.restricted = restricted;
+            this.resolved = resolved;
+            this.info = info;
+        }
+
+        /**
+         * @param host       server host
+         * @param port       server port
+         * @param motd       server motd
+         * @param restricted restricted
+         * @param address    resolved address or null if it isn't cached or expired
+         * @return can the server info be reused, a resolved server info is only reused while its address is cached
+         */
+        private boolean matches(String host, int port, String motd, boolean restricted, InetAddress address) {
+            return Objects.equals(this.host, host)
+                    && this.port == port
+                    && Objects.equals(this.motd, motd)
+                    && this.restricted == restricted
+                    && resolved == (address != null)
+                    && (!resolved || info.getAddress().getAddress().equals(address));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerPlayerInfo;
+import com.exaroton.api.server.ServerStatus;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.config.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * groups of exaroton servers that players can switch or connect to by the name of the group
+ * players are sent to the online member with the fewest players
+ * only cached servers are used, their player counts are kept up to date by the status listeners
+ */
+public class ServerPools {
+
+    /**
+     * seconds a selected server counts an additional player, until the player shows up in the proxy
+     */
+    private static final long RESERVATION_TIME = 5;
+
+    /**
+     * exaroton plugin
+     */
+    private final ExarotonPlugin plugin;
+
+    /**
+     * pool name -> members (exaroton address, name or id or server name in the proxy)
+     */
+    private final Map<String, List<String>> pools = new LinkedHashMap<>();
+
+    /**
+     * server id -> players that were recently sent to the server
+     */
+    private final Map<String, AtomicInteger> reserved = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin exaroton plugin
+     * @param config pool name -> members
+     */
+    public ServerPools(ExarotonPlugin plugin, Configuration config) {
+        this.plugin = plugin;
+        if (config == null) {
+            return;
+        }
+        for (String name : config.getKeys()) {
+            List<String> members = config.getStringList(name);
+            if (members != null && !members.isEmpty()) {
+                pools.put(name, Collections.unmodifiableList(new ArrayList<>(members)));
+            }
+        }
+    }
+
+    /**
+     * @param name pool or server name
+     * @return is this the name of a pool
+     */
+    public boolean isPool(String name) {
+        return name != null && pools.containsKey(name);
+    }
+
+    /**
+     * @return names of all pools
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(pools.keySet());
+    }
+
+    /**
+     * @param pool pool name
+     * @return members of the pool (exaroton address, name or id or server name in the proxy)
+     */
+    public List<String> getMembers(String pool) {
+        return pools.getOrDefault(pool, Collections.emptyList());
+    }
+
+    /**
+     * select the server a player should be sent to
+     * this never waits for the API, so it can be used on network threads
+     * the selected server has to be reserved with {@link #reserve(Server)} when the player is sent to it
+     * @param pool pool name
+     * @return online member with the fewest players, a member that is starting, an offline member or null
+     */
+    public Server select(String pool) {
+        Server online = null, starting = null, offline = null;
+        int lowest = Integer.MAX_VALUE;
+        for (String member : this.getMembers(pool)) {
+            Server server = plugin.findCachedServer(member);
+            if (server == null) {
+                continue;
+            }
+
+            if (server.hasStatus(ServerStatus.ONLINE)) {
+                int load = this.getLoad(server);
+                if (load < lowest) {
+                    lowest = load;
+                    online = server;
+                }
+            } else if (server.hasStatus(ServerStatus.LOADING, ServerStatus.STARTING, ServerStatus.PREPARING)) {
+                if (starting == null) {
+                    starting = server;
+                }
+            } else if (server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED) && offline == null) {
+                offline = server;
+            }
+        }
+
+        if (online != null) {
+            return online;
+        }
+        return starting != null ? starting : offline;
+    }
+
+    /**
+     * count players in the proxy, on the server itself, waiting in the switch queue and recently sent to the server
+     * @param server exaroton server
+     * @return number of players
+     */
+    public int getLoad(Server server) {
+        ServerInfo info = plugin.getProxy().getServers().get(plugin.findServerName(server.getAddress(), server.getName()));
+        int proxyPlayers = info == null ? 0 : info.getPlayers().size();
+        ServerPlayerInfo playerInfo = server.getPlayerInfo();
+        int serverPlayers = playerInfo == null ? 0 : playerInfo.getCount();
+        AtomicInteger recent = reserved.get(server.getId());
+        return Math.max(proxyPlayers, serverPlayers) + plugin.getSwitchQueue().size(server.getId())
+                + (recent == null ? 0 : recent.get());
+    }
+
+    /**
+     * count an additional player on this server until the player shows up in the proxy
+     * otherwise players joining at the same time would all be sent to the same server
+     * only call this when the player is actually sent to the server
+     * @param server selected server
+     * @return releases the reservation early, e.g. if the player couldn't connect
+     */
+    public Runnable reserve(Server server) {
+        AtomicInteger count = reserved.computeIfAbsent(server.getId(), id -> new AtomicInteger());
+        count.incrementAndGet();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                count.decrementAndGet();
+            }
+        };
+        plugin.getProxy().getScheduler().schedule(plugin, release, RESERVATION_TIME, TimeUnit.SECONDS);
+        return release;
+    }
+}
@@ -0,0 +1,199 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+import net.md_5.bungee.config.Configuration;
+import net.md_5.bungee.config.ConfigurationProvider;
+import net.md_5.bungee.config.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * last known state of the watched servers, stored in the plugin data folder
+ * used to register servers in the proxy before the server list has been fetched
+ */
+public class ServerSnapshot {
+
+    /**
+     * snapshot file
+     */
+    private final File file;
+
+    /**
+     * @param file snapshot file
+     */
+    public ServerSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return stored entries, empty if there is no snapshot
+     * @throws IOException exception reading the snapshot
+     */
+    public List<Entry> load() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        if (!file.exists()) {
+            return entries;
+        }
+
+        List<?> servers = ConfigurationProvider.getProvider(YamlConfiguration.class).load(file).getList("servers");
+        if (servers == null) {
+            return entries;
+        }
+        for (Object value : servers) {
+            if (!(value instanceof Map)) {
+                continue;
+            }
+            Map<?, ?> server = (Map<?, ?>) value;
+            entries.add(new Entry(
+                    getString(server, "id"),
+                    getString(server, "name"),
+                    getString(server, "address"),
+                    getString(server, "host"),
+                    getInt(server, "port"),
+                    getInt(server, "status"),
+                    getString(server, "motd")
+            ));
+        }
+        return entries;
+    }
+
+    /**
+     * replace the snapshot
+     * @param entries current state of the watched servers
+     * @throws IOException exception writing the snapshot
+     */
+    public void save(Collection<Entry> entries) throws IOException {
+        // a list instead of a section keyed by name, server names can contain dots
+        List<Map<String, Object>> servers = new ArrayList<>();
+        for (Entry entry : entries) {
+            Map<String, Object> server = new LinkedHashMap<>();
+            server.put("name", entry.name);
+            server.put("id", entry.id);
+            server.put("address", entry.address);
+            server.put("host", entry.host);
+            server.put("port", entry.port);
+            server.put("status", entry.status);
+            server.put("motd", entry.motd);
+            servers.add(server);
+        }
+        Configuration snapshot = new Configuration();
+        snapshot.set("servers", servers);
+
+        // write to a temporary file first so a crash never leaves a partial snapshot behind
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        ConfigurationProvider.getProvider(YamlConfiguration.class).save(snapshot, temporary);
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param map snapshot entry
+     * @param key key
+     * @return value as a string or null
+     */
+    private static String getString(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * @param map snapshot entry
+     * @param key key
+     * @return value as an int or 0
+     */
+    private static int getInt(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * last known state of a server
+     */
+    public static class Entry {
+
+        /**
+         * exaroton server id
+         */
+        private final String id;
+
+        /**
+         * server name in the proxy
+         */
+        private final String name;
+
+        /**
+         * exaroton address (example.exaroton.me)
+         */
+        private final String address;
+
+        /**
+         * host and port the server was reachable at
+         */
+        private final String host;
+        private final int port;
+
+        /**
+         * server status
+         */
+        private final int status;
+
+        /**
+         * server motd
+         */
+        private final String motd;
+
+        private Entry(String id, String name, String address, String host, int port, int status, String motd) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.host = host;
+            this.port = port;
+            this.status = status;
+            this.motd = motd;
+        }
+
+        /**
+         * @param name   server name in the proxy
+         * @param server exaroton server
+         * @return entry with the current state of the server
+         */
+        public static Entry of(String name, Server server) {
+            return new Entry(server.getId(), name, server.getAddress(), server.getHost(), server.getPort(), server.getStatus(), server.getMotd());
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getMotd() {
+            return motd;
+        }
+    }
+}
@@ -3,16 +3,17 @@ package com.exaroton.bungee;
 import com.exaroton.api.server.Server;
 import com.exaroton.api.server.ServerStatus;
 import com.exaroton.api.ws.subscriber.ServerStatusSubscriber;
+import com.exaroton.bungee.events.ServerAddressChangeEvent;
+import com.exaroton.bungee.events.ServerStatusChangeEvent;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.config.ServerInfo;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,12 +37,12 @@ public class ServerStatusListener extends ServerStatusSubscriber {
     /**
      * optional command sender
      */
-    private CommandSender sender;
+    private volatile CommandSender sender;
 
     /**
      * optional server name
      */
-    private String name;
+    private volatile String name;
 
     /**
      * is this server restricted
@@ -51,14 +52,37 @@ public class ServerStatusListener extends ServerStatusSubscriber {
     /**
      * server status that the user is waiting for
      */
-    private int expectedStatus;
+    private volatile int expectedStatus;
 
     /**
      * exaroton server
      */
     private final Server server;
 
-    private final Map<Integer, List<CompletableFuture<Server>>> waitingFor = new HashMap<>();
+    /**
+     * futures waiting for a status
+     */
+    private final StatusWaiters waiters = new StatusWaiters();
+
+    /**
+     * {@link System#nanoTime()} when the server left the offline status, 0 if it isn't starting
+     */
+    private volatile long startingSince = 0;
+
+    /**
+     * milliseconds the server needed to go online the last time, -1 if it hasn't been started yet
+     */
+    private volatile long lastStartupTime = -1;
+
+    /**
+     * number of times the server went online while it was watched
+     */
+    private volatile long startups = 0;
+
+    /**
+     * last status change, null if the status hasn't changed while the server was watched
+     */
+    private volatile StatusChange lastStatusChange;
 
     public ServerStatusListener(ExarotonPlugin plugin, boolean restricted, Server server) {
         this.proxy = plugin.getProxy();
@@ -79,7 +103,14 @@ public class ServerStatusListener extends ServerStatusSubscriber {
         return name != null ? name : server.getName();
     }
 
-    public ServerStatusListener setSender(CommandSender sender, int expectedStatus) {
+    /**
+     * @return watched exaroton server
+     */
+    public Server getServer() {
+        return server;
+    }
+
+    public synchronized ServerStatusListener setSender(CommandSender sender, int expectedStatus) {
         if (sender != null) {
             this.sender = sender;
             this.expectedStatus = expectedStatus;
@@ -89,27 +120,95 @@ public class ServerStatusListener extends ServerStatusSubscriber {
 
     @Override
     public void statusUpdate(Server oldServer, Server newServer) {
+        plugin.getServerExecutor().execute(newServer.getId(), () -> this.handleStatusUpdate(oldServer, newServer));
+    }
+
+    /**
+     * apply a status update after all other pending tasks for this server
+     * @param oldServer server before the update
+     * @param newServer server after the update
+     */
+    private void handleStatusUpdate(Server oldServer, Server newServer) {
         plugin.updateServer(newServer);
+        plugin.scheduleSnapshot();
 
-        if (waitingFor.containsKey(newServer.getStatus())) {
-            for (CompletableFuture<Server> future: waitingFor.get(newServer.getStatus())) {
-                future.complete(newServer);
-            }
+        waiters.complete(newServer);
+        this.recordStartup(oldServer, newServer);
+        if (oldServer.getStatus() != newServer.getStatus()) {
+            lastStatusChange = new StatusChange(oldServer.getStatus(), newServer.getStatus(), System.currentTimeMillis());
         }
 
         String serverName = this.name == null ? newServer.getName() : this.name;
+        if (!newServer.hasStatus(ServerStatus.ONLINE) && newServer.getHost() != null) {
+            // resolve the host while the server is starting, so it's cached when the server goes online
+            plugin.getServerInfoCache().resolve(newServer.getHost());
+        }
+
         if (!oldServer.hasStatus(ServerStatus.ONLINE) && newServer.hasStatus(ServerStatus.ONLINE)) {
-            if (proxy.getServers().containsKey(serverName)) {
+            if (proxy.getServers().containsKey(serverName) && !plugin.keepsOfflineServer(serverName)) {
                 this.sendInfo("Server "+serverName+" already exists in bungee network", true);
-                return;
+            } else {
+                plugin.addToProxy(serverName, newServer, restricted);
+                this.sendInfo(Message.statusChange(serverName, true).getMessage(), expectedStatus == ServerStatus.ONLINE);
             }
-            proxy.getServers().put(serverName, plugin.constructServerInfo(serverName, newServer, restricted));
-            this.sendInfo(Message.statusChange(serverName, true).getMessage(), expectedStatus == ServerStatus.ONLINE);
         }
         else if (oldServer.hasStatus(ServerStatus.ONLINE) && !newServer.hasStatus(ServerStatus.ONLINE)) {
-            proxy.getServers().remove(serverName);
+            plugin.removeOfflineServer(serverName, newServer);
             this.sendInfo(Message.statusChange(serverName, false).getMessage(), expectedStatus == ServerStatus.OFFLINE);
         }
+        else if (newServer.hasStatus(ServerStatus.ONLINE) && proxy.getServers().containsKey(serverName)
+                && (!Objects.equals(oldServer.getHost(), newServer.getHost()) || oldServer.getPort() != newServer.getPort())) {
+            ServerInfo info = plugin.addToProxy(serverName, newServer, restricted);
+            proxy.getPluginManager().callEvent(new ServerAddressChangeEvent(serverName, oldServer, newServer, info));
+        }
+
+        if (oldServer.getStatus() != newServer.getStatus()) {
+            proxy.getPluginManager().callEvent(new ServerStatusChangeEvent(serverName, oldServer, newServer));
+        }
+    }
+
+    /**
+     * measure the time from leaving the offline status to going online
+     * only called from the server executor, so updates never overlap
+     * updates can be coalesced, a server going from offline to online directly is counted without a startup time
+     * @param oldServer server before the update
+     * @param newServer server after the update
+     */
+    private void recordStartup(Server oldServer, Server newServer) {
+        if (newServer.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            startingSince = 0;
+        } else if (oldServer.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED) && newServer.hasStatus(ServerStatus.ONLINE)) {
+            // the statuses in between were skipped, so the startup time is unknown
+            startingSince = 0;
+            startups++;
+        } else if (oldServer.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+            startingSince = System.nanoTime();
+        } else if (newServer.hasStatus(ServerStatus.ONLINE) && startingSince != 0) {
+            lastStartupTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startingSince);
+            startingSince = 0;
+            startups++;
+        }
+    }
+
+    /**
+     * @return milliseconds the server needed to go online the last time, -1 if it hasn't been started while it was watched
+     */
+    public long getLastStartupTime() {
+        return lastStartupTime;
+    }
+
+    /**
+     * @return number of times the server went online while it was watched
+     */
+    public long getStartups() {
+        return startups;
+    }
+
+    /**
+     * @return last status change, null if the status hasn't changed while the server was watched
+     */
+    public StatusChange getLastStatusChange() {
+        return lastStatusChange;
     }
 
     /**
@@ -119,11 +218,16 @@ public class ServerStatusListener extends ServerStatusSubscriber {
     public void sendInfo(String message, boolean unsubscribe) {
         logger.log(Level.INFO, message);
         TextComponent text = new TextComponent(message + ChatColor.RESET);
+        CommandSender sender = this.sender;
         if (sender != null && !sender.equals(proxy.getConsole())) {
             sender.sendMessage(text);
             if (unsubscribe) {
                 //unsubscribe user from further updates
-                this.sender = null;
+                synchronized (this) {
+                    if (this.sender == sender) {
+                        this.sender = null;
+                    }
+                }
             }
         }
     }
@@ -133,19 +237,86 @@ public class ServerStatusListener extends ServerStatusSubscriber {
      */
     public void unsubscribe() {
         this.server.unsubscribe();
+        this.waiters.cancelAll();
+    }
+
+    /**
+     * fail everything waiting for a status of this server because the subscription failed
+     * @param e reason the subscription failed
+     */
+    public void subscriptionFailed(Throwable e) {
+        this.waiters.failAll(e);
     }
 
     /**
      * wait until this server has reached this status
+     * the future expires after {@link StatusWaiters#DEFAULT_TIMEOUT} minutes
      * @param status expected status
      * @return server with status
      */
     public CompletableFuture<Server> waitForStatus(int status) {
-        CompletableFuture<Server> future = new CompletableFuture<>();
-        if (!waitingFor.containsKey(status)) {
-            waitingFor.put(status, new ArrayList<>());
+        return this.waitForStatus(status, StatusWaiters.DEFAULT_TIMEOUT, TimeUnit.MINUTES);
+    }
+
+    /**
+     * wait until this server has reached this status
+     * cancel the future to stop waiting
+     * @param status  expected status
+     * @param timeout time after which the future completes exceptionally with a TimeoutException, 0 or less to never expire
+     * @param unit    time unit of the timeout
+     * @return server with status
+     */
+    public CompletableFuture<Server> waitForStatus(int status, long timeout, TimeUnit unit) {
+        return waiters.add(status, timeout, unit);
+    }
+
+    /**
+     * @return number of futures waiting for a status
+     */
+    public int getWaiterCount() {
+        return waiters.size();
+    }
+
+    /**
+     * a change of the server status
+     */
+    public static class StatusChange {
+
+        /**
+         * status before and after the change
+         */
+        private final int oldStatus, newStatus;
+
+        /**
+         * {@link System#currentTimeMillis()} when the status changed
+         */
+        private final long time;
+
+        private StatusChange(int oldStatus, int newStatus, long time) {
+            this.oldStatus = oldStatus;
+            this.newStatus = newStatus;
+            this.time = time;
+        }
+
+        /**
+         * @return status before the change
+         */
+        public int getOldStatus() {
+            return oldStatus;
+        }
+
+        /**
+         * @return status after the change
+         */
+        public int getNewStatus() {
+            return newStatus;
+        }
+
+        /**
+         * @return {@link System#currentTimeMillis()} when the status changed
+         */
+        public long getTime() {
+            return time;
         }
-        waitingFor.get(status).add(future);
-        return future;
     }
 }
@@ -0,0 +1,55 @@
+package com.exaroton.bungee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * records when each server reached each step of the startup tasks
+ */
+public class StartupTimeline {
+
+    /**
+     * {@link System#nanoTime()} when the startup tasks began
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * server name -> steps with milliseconds since start
+     */
+    private final Map<String, List<String>> steps = new ConcurrentSkipListMap<>();
+
+    /**
+     * record that a server reached a step
+     * @param server server name
+     * @param step   step name (e.g. "subscribed")
+     */
+    public void mark(String server, String step) {
+        steps.computeIfAbsent(server, s -> Collections.synchronizedList(new ArrayList<>()))
+                .add(step + " after " + this.getElapsed() + "ms");
+    }
+
+    /**
+     * @return milliseconds since the startup tasks began
+     */
+    public long getElapsed() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * log the timeline of every server
+     * @param logger logger
+     */
+    public void log(Logger logger) {
+        for (Map.Entry<String, List<String>> server : steps.entrySet()) {
+            synchronized (server.getValue()) {
+                logger.info("Startup timeline for " + server.getKey() + ": " + String.join(", ", server.getValue()));
+            }
+        }
+        logger.info("Finished startup tasks for " + steps.size() + " server(s) in " + this.getElapsed() + "ms");
+    }
+}
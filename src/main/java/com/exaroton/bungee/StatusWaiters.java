@@ -0,0 +1,103 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * futures waiting for a server to reach a status
+ * waiters are removed as soon as they are completed, time out or are cancelled
+ */
+public class StatusWaiters {
+
+    /**
+     * default time in minutes after which a waiter expires
+     */
+    public static final long DEFAULT_TIMEOUT = 15;
+
+    /**
+     * status -> waiting futures
+     */
+    private final Map<Integer, Set<CompletableFuture<Server>>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * reason no status updates will arrive, null while they can
+     */
+    private volatile Throwable failure = null;
+
+    /**
+     * wait until the server has reached this status
+     * @param status  expected status
+     * @param timeout time after which the future completes exceptionally with a TimeoutException, 0 or less to never expire
+     * @param unit    time unit of the timeout
+     * @return future that completes with the server
+     */
+    public CompletableFuture<Server> add(int status, long timeout, TimeUnit unit) {
+        CompletableFuture<Server> future = new CompletableFuture<>();
+        Set<CompletableFuture<Server>> waiting = waiters.computeIfAbsent(status, s -> ConcurrentHashMap.newKeySet());
+        waiting.add(future);
+        future.whenComplete((server, e) -> waiting.remove(future));
+        if (timeout > 0) {
+            future.orTimeout(timeout, unit);
+        }
+        // checked after adding the future, so it is either failed here or by failAll
+        Throwable failure = this.failure;
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        }
+        return future;
+    }
+
+    /**
+     * complete all futures waiting for the current status of this server
+     * @param server updated server
+     */
+    public void complete(Server server) {
+        Set<CompletableFuture<Server>> waiting = waiters.get(server.getStatus());
+        if (waiting == null) {
+            return;
+        }
+        for (CompletableFuture<Server> future : waiting) {
+            future.complete(server);
+        }
+    }
+
+    /**
+     * cancel all waiting futures
+     */
+    public void cancelAll() {
+        for (Set<CompletableFuture<Server>> waiting : waiters.values()) {
+            for (CompletableFuture<Server> future : waiting) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * fail all waiting and future waiters, e.g. because the status subscription failed
+     * @param e reason no status updates will arrive
+     */
+    public void failAll(Throwable e) {
+        this.failure = e;
+        for (Set<CompletableFuture<Server>> waiting : waiters.values()) {
+            for (CompletableFuture<Server> future : waiting) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * @return number of waiting futures
+     */
+    public int size() {
+        int size = 0;
+        for (Set<CompletableFuture<Server>> waiting : waiters.values()) {
+            size += waiting.size();
+        }
+        return size;
+    }
+}
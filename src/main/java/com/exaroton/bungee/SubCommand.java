@@ -1,8 +1,11 @@
 package com.exaroton.bungee;
 
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.plugin.TabExecutor;
 
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public abstract class SubCommand implements TabExecutor {
@@ -72,4 +75,30 @@ public abstract class SubCommand implements TabExecutor {
     public String getPermission() {
         return null;
     }
+
+    /**
+     * run an action after all other pending actions for this server
+     * the action gets the latest known version of the server, not the one that was looked up
+     * @param sender command sender to notify about API errors
+     * @param server exaroton server
+     * @param action action
+     */
+    protected void runForServer(CommandSender sender, Server server, ServerAction action) {
+        plugin.getServerExecutor().execute(server.getId(), () -> {
+            try {
+                action.run(plugin.getLatestServer(server));
+            } catch (APIException e) {
+                logger.log(Level.SEVERE, "An API Error occurred!", e);
+                sender.sendMessage(Message.API_ERROR);
+            }
+        });
+    }
+
+    /**
+     * action that changes the state of a server
+     */
+    @FunctionalInterface
+    protected interface ServerAction {
+        void run(Server server) throws APIException;
+    }
 }
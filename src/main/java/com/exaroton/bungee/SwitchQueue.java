@@ -0,0 +1,358 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * queues of players waiting for a server to go online
+ * the first player in a queue starts the server, all players are moved in batches once it is online
+ */
+public class SwitchQueue {
+
+    /**
+     * exaroton plugin
+     */
+    private final ExarotonPlugin plugin;
+
+    /**
+     * logger
+     */
+    private final Logger logger;
+
+    /**
+     * maximum number of players moved per second, 0 or less for no limit
+     */
+    private final int playersPerSecond;
+
+    /**
+     * time in seconds to wait for a server to go online
+     */
+    private final long timeout;
+
+    /**
+     * server id -> queue
+     */
+    private final Map<String, ServerQueue> queues = new ConcurrentHashMap<>();
+
+    /**
+     * @param plugin           exaroton plugin
+     * @param playersPerSecond maximum number of players moved per second, 0 or less for no limit
+     * @param timeout          time in seconds to wait for a server to go online
+     */
+    public SwitchQueue(ExarotonPlugin plugin, int playersPerSecond, long timeout) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.playersPerSecond = playersPerSecond;
+        this.timeout = timeout;
+    }
+
+    /**
+     * do players have to wait before they can be moved to this server
+     * @param server exaroton server
+     * @return is the server offline, starting, restarting or stopping
+     */
+    public static boolean isRequired(Server server) {
+        return server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED, ServerStatus.LOADING, ServerStatus.STARTING,
+                ServerStatus.PREPARING, ServerStatus.RESTARTING, ServerStatus.STOPPING, ServerStatus.SAVING);
+    }
+
+    /**
+     * add a player to the queue of a server
+     * the server is started if this is the first player in the queue and the server is offline, a stopping server is started once it is offline
+     * @param player player to move
+     * @param server server to move to
+     * @return queue entry
+     */
+    public Entry add(ProxiedPlayer player, Server server) {
+        while (true) {
+            ServerQueue queue = queues.computeIfAbsent(server.getId(), id -> new ServerQueue(server));
+            Entry entry = queue.add(player);
+            if (entry != null) {
+                queue.open();
+                return entry;
+            }
+            // the queue is already being moved to the server
+            queues.remove(server.getId(), queue);
+        }
+    }
+
+    /**
+     * @param serverId exaroton server id
+     * @return number of players waiting for this server
+     */
+    public int size(String serverId) {
+        ServerQueue queue = queues.get(serverId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return server id -> number of waiting players
+     */
+    public Map<String, Integer> sizes() {
+        Map<String, Integer> result = new HashMap<>();
+        for (Map.Entry<String, ServerQueue> queue : queues.entrySet()) {
+            result.put(queue.getKey(), queue.getValue().size());
+        }
+        return result;
+    }
+
+    /**
+     * a player waiting in a queue
+     */
+    public static class Entry {
+
+        /**
+         * waiting player
+         */
+        private final ProxiedPlayer player;
+
+        /**
+         * position in the queue when the player was added
+         */
+        private final int position;
+
+        /**
+         * completes when the player is being connected to the server
+         * cancel to leave the queue
+         */
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        /**
+         * {@link System#nanoTime()} when the player was added
+         */
+        private final long addedAt = System.nanoTime();
+
+        private Entry(ProxiedPlayer player, int position) {
+            this.player = player;
+            this.position = position;
+        }
+
+        /**
+         * @return waiting player
+         */
+        public ProxiedPlayer getPlayer() {
+            return player;
+        }
+
+        /**
+         * @return position in the queue when the player was added (starting at 1)
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return future that completes when the player is being connected, cancel to leave the queue
+         */
+        public CompletableFuture<Void> getFuture() {
+            return future;
+        }
+    }
+
+    private class ServerQueue {
+
+        /**
+         * exaroton server
+         */
+        private final Server server;
+
+        /**
+         * player id -> entry in the order the players joined
+         */
+        private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>();
+
+        /**
+         * has the server been started or waited for
+         */
+        private final AtomicBoolean opened = new AtomicBoolean();
+
+        /**
+         * are players already being moved
+         */
+        private boolean closed = false;
+
+        private ServerQueue(Server server) {
+            this.server = server;
+        }
+
+        /**
+         * @param player player to add
+         * @return new or existing entry of this player or null if the queue is closed
+         */
+        private synchronized Entry add(ProxiedPlayer player) {
+            if (closed) {
+                return null;
+            }
+
+            Entry entry = entries.get(player.getUniqueId());
+            if (entry != null) {
+                return entry;
+            }
+
+            entry = new Entry(player, entries.size() + 1);
+            entries.put(player.getUniqueId(), entry);
+            Entry added = entry;
+            entry.future.whenComplete((ignored, e) -> {
+                if (e != null) {
+                    this.remove(added);
+                }
+            });
+            return entry;
+        }
+
+        /**
+         * @param entry entry that left the queue
+         */
+        private synchronized void remove(Entry entry) {
+            entries.remove(entry.player.getUniqueId(), entry);
+        }
+
+        /**
+         * @return number of waiting players
+         */
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        /**
+         * start the server if necessary and wait for it to go online
+         */
+        private void open() {
+            if (!opened.compareAndSet(false, true)) {
+                return;
+            }
+
+            ServerStatusListener listener = plugin.listenToStatus(server, plugin.findServerName(server.getAddress()));
+            CompletableFuture<Server> online = listener.waitForStatus(ServerStatus.ONLINE, timeout, TimeUnit.SECONDS);
+            online.whenComplete((onlineServer, e) -> {
+                if (e != null) {
+                    this.fail(e);
+                } else {
+                    this.drain(onlineServer);
+                }
+            });
+
+            // the server the caller looked up might be outdated, e.g. if an earlier queue already started it
+            Server current = this.getCurrentServer();
+            if (current.hasStatus(ServerStatus.ONLINE)) {
+                online.complete(current);
+            } else if (!current.hasStatus(ServerStatus.LOADING, ServerStatus.STARTING, ServerStatus.PREPARING, ServerStatus.RESTARTING)) {
+                plugin.getServerExecutor().execute(server.getId(), () -> this.start(listener, online));
+            }
+        }
+
+        /**
+         * start the server if it is offline, or once it is offline if it is stopping
+         * runs on the server executor, status updates are applied there too, so the cached status is the latest
+         * @param listener status listener of the server
+         * @param online   future waiting for the server to go online
+         */
+        private void start(ServerStatusListener listener, CompletableFuture<Server> online) {
+            if (online.isDone()) {
+                return;
+            }
+            Server latest = this.getCurrentServer();
+            if (latest.hasStatus(ServerStatus.ONLINE)) {
+                online.complete(latest);
+                return;
+            }
+            if (latest.hasStatus(ServerStatus.STOPPING, ServerStatus.SAVING)) {
+                CompletableFuture<Server> offline = listener.waitForStatus(ServerStatus.OFFLINE);
+                CompletableFuture<Server> crashed = listener.waitForStatus(ServerStatus.CRASHED);
+                online.whenComplete((onlineServer, e) -> {
+                    offline.cancel(false);
+                    crashed.cancel(false);
+                });
+                CompletableFuture.anyOf(offline, crashed).thenRun(() ->
+                        plugin.getServerExecutor().execute(server.getId(), () -> this.start(listener, online)));
+                return;
+            }
+            if (!latest.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                return;
+            }
+            try {
+                logger.info("Starting " + listener.getName(latest) + " for waiting players");
+                plugin.getApiRequests().run(RateLimiter.Priority.INTERACTIVE, ApiRequests.Endpoint.START, latest::start);
+            } catch (APIException e) {
+                online.completeExceptionally(e);
+            }
+        }
+
+        /**
+         * @return latest cached version of the server or the server the queue was created for
+         */
+        private Server getCurrentServer() {
+            Server current = plugin.findCachedServer(server.getId());
+            return current != null ? current : server;
+        }
+
+        /**
+         * @return all waiting entries, no more players can be added afterwards
+         */
+        private synchronized List<Entry> close() {
+            closed = true;
+            queues.remove(server.getId(), this);
+            List<Entry> result = new ArrayList<>(entries.values());
+            entries.clear();
+            return result;
+        }
+
+        /**
+         * move all waiting players to the server in batches
+         * @param onlineServer server that is now online
+         */
+        private void drain(Server onlineServer) {
+            List<Entry> waiting = this.close();
+            int batchSize = playersPerSecond > 0 ? playersPerSecond : Math.max(1, waiting.size());
+            for (int start = 0, batch = 0; start < waiting.size(); start += batchSize, batch++) {
+                List<Entry> entries = waiting.subList(start, Math.min(start + batchSize, waiting.size()));
+                plugin.getProxy().getScheduler().schedule(plugin,
+                        () -> plugin.getServerExecutor().execute(server.getId(), () -> this.move(onlineServer, entries)),
+                        batch, TimeUnit.SECONDS);
+            }
+        }
+
+        /**
+         * @param onlineServer server that is now online
+         * @param entries      batch of entries to move
+         */
+        private void move(Server onlineServer, List<Entry> entries) {
+            for (Entry entry : entries) {
+                if (entry.future.isDone()) {
+                    continue;
+                }
+                if (!entry.player.isConnected()) {
+                    entry.future.cancel(false);
+                    continue;
+                }
+                try {
+                    plugin.movePlayer(entry.player, onlineServer, entry.addedAt);
+                    entry.future.complete(null);
+                } catch (RuntimeException e) {
+                    entry.future.completeExceptionally(e);
+                }
+            }
+        }
+
+        /**
+         * @param e reason the server didn't go online
+         */
+        private void fail(Throwable e) {
+            List<Entry> waiting = this.close();
+            logger.log(Level.WARNING, "Failed to wait for " + server.getName() + " to go online, " + waiting.size() + " player(s) were waiting", e);
+            for (Entry entry : waiting) {
+                entry.future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.exaroton.bungee.events;
+
+import com.exaroton.api.server.Server;
+import net.md_5.bungee.api.plugin.Event;
+
+/**
+ * base class for events about exaroton servers
+ * events are called asynchronously, events for the same server are called in the order they happened
+ */
+public abstract class ExarotonServerEvent extends Event {
+
+    /**
+     * server name in the proxy
+     */
+    private final String name;
+
+    /**
+     * exaroton server
+     */
+    private final Server server;
+
+    /**
+     * @param name   server name in the proxy
+     * @param server exaroton server
+     */
+    protected ExarotonServerEvent(String name, Server server) {
+        this.name = name;
+        this.server = server;
+    }
+
+    /**
+     * @return server name in the proxy (e.g. lobby)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return exaroton server
+     */
+    public Server getServer() {
+        return server;
+    }
+}
@@ -0,0 +1,32 @@
+package com.exaroton.bungee.events;
+
+import com.exaroton.api.server.Server;
+import net.md_5.bungee.api.config.ServerInfo;
+
+/**
+ * called when an exaroton server was added to the proxy
+ */
+public class ServerAddedEvent extends ExarotonServerEvent {
+
+    /**
+     * bungee server info
+     */
+    private final ServerInfo info;
+
+    /**
+     * @param name   server name in the proxy
+     * @param server exaroton server
+     * @param info   bungee server info
+     */
+    public ServerAddedEvent(String name, Server server, ServerInfo info) {
+        super(name, server);
+        this.info = info;
+    }
+
+    /**
+     * @return bungee server info
+     */
+    public ServerInfo getInfo() {
+        return info;
+    }
+}
@@ -0,0 +1,46 @@
+package com.exaroton.bungee.events;
+
+import com.exaroton.api.server.Server;
+import net.md_5.bungee.api.config.ServerInfo;
+
+/**
+ * called when the host or port of an online exaroton server changed and the proxy was updated
+ */
+public class ServerAddressChangeEvent extends ExarotonServerEvent {
+
+    /**
+     * server before the update
+     */
+    private final Server oldServer;
+
+    /**
+     * new bungee server info
+     */
+    private final ServerInfo info;
+
+    /**
+     * @param name      server name in the proxy
+     * @param oldServer server before the update
+     * @param newServer server after the update
+     * @param info      new bungee server info
+     */
+    public ServerAddressChangeEvent(String name, Server oldServer, Server newServer, ServerInfo info) {
+        super(name, newServer);
+        this.oldServer = oldServer;
+        this.info = info;
+    }
+
+    /**
+     * @return server before the update
+     */
+    public Server getOldServer() {
+        return oldServer;
+    }
+
+    /**
+     * @return new bungee server info
+     */
+    public ServerInfo getInfo() {
+        return info;
+    }
+}
@@ -0,0 +1,32 @@
+package com.exaroton.bungee.events;
+
+import com.exaroton.api.server.Server;
+import net.md_5.bungee.api.config.ServerInfo;
+
+/**
+ * called when an exaroton server was removed from the proxy
+ */
+public class ServerRemovedEvent extends ExarotonServerEvent {
+
+    /**
+     * removed bungee server info
+     */
+    private final ServerInfo info;
+
+    /**
+     * @param name   server name in the proxy
+     * @param server exaroton server
+     * @param info   removed bungee server info
+     */
+    public ServerRemovedEvent(String name, Server server, ServerInfo info) {
+        super(name, server);
+        this.info = info;
+    }
+
+    /**
+     * @return removed bungee server info
+     */
+    public ServerInfo getInfo() {
+        return info;
+    }
+}
@@ -0,0 +1,45 @@
+package com.exaroton.bungee.events;
+
+import com.exaroton.api.server.Server;
+
+/**
+ * called when the status of a watched exaroton server changed
+ */
+public class ServerStatusChangeEvent extends ExarotonServerEvent {
+
+    /**
+     * server before the update
+     */
+    private final Server oldServer;
+
+    /**
+     * @param name      server name in the proxy
+     * @param oldServer server before the update
+     * @param newServer server after the update
+     */
+    public ServerStatusChangeEvent(String name, Server oldServer, Server newServer) {
+        super(name, newServer);
+        this.oldServer = oldServer;
+    }
+
+    /**
+     * @return server before the update
+     */
+    public Server getOldServer() {
+        return oldServer;
+    }
+
+    /**
+     * @return status before the update (see {@link com.exaroton.api.server.ServerStatus})
+     */
+    public int getOldStatus() {
+        return oldServer.getStatus();
+    }
+
+    /**
+     * @return status after the update (see {@link com.exaroton.api.server.ServerStatus})
+     */
+    public int getNewStatus() {
+        return this.getServer().getStatus();
+    }
+}
@@ -5,6 +5,7 @@ import com.exaroton.api.server.Server;
 import com.exaroton.api.server.ServerStatus;
 import com.exaroton.bungee.ExarotonPlugin;
 import com.exaroton.bungee.Message;
+import com.exaroton.bungee.RateLimiter;
 import com.exaroton.bungee.ServerStatusListener;
 import com.exaroton.bungee.SubCommand;
 import net.md_5.bungee.api.CommandSender;
@@ -28,28 +29,30 @@ public class AddServer extends SubCommand {
         }
 
         try {
-            Server server = plugin.findServer(args[0], true);
+            Server server = plugin.findServer(args[0], true, RateLimiter.Priority.INTERACTIVE);
             if (server == null) {
                 sender.sendMessage(Message.SERVER_NOT_FOUND);
                 return;
             }
 
-            ServerStatusListener listener = plugin.listenToStatus(server, sender, plugin.findServerName(server.getAddress()), ServerStatus.ONLINE);
-            String name = listener.getName(server);
-            sender.sendMessage(Message.watching(name).toComponent());
+            this.runForServer(sender, server, current -> {
+                ServerStatusListener listener = plugin.listenToStatus(current, sender, plugin.findServerName(current.getAddress()), ServerStatus.ONLINE);
+                String name = listener.getName(current);
+                sender.sendMessage(Message.watching(name).toComponent());
 
-            if (server.hasStatus(ServerStatus.ONLINE)) {
-                if (plugin.getProxy().getServers().containsKey(name)) {
-                    sender.sendMessage(Message.error("Failed to add server: A server with the name " + name + " already exists in proxy.").toComponent());
-                }
-                else {
-                    plugin.getProxy().getServers().put(name, plugin.constructServerInfo(name, server, false));
-                    sender.sendMessage(Message.added(name).toComponent());
-                    if (!sender.equals(plugin.getProxy().getConsole())) {
-                        logger.info(sender.getName() + " is adding " + name + " to the proxy.");
+                if (current.hasStatus(ServerStatus.ONLINE)) {
+                    if (plugin.getProxy().getServers().containsKey(name)) {
+                        sender.sendMessage(Message.error("Failed to add server: A server with the name " + name + " already exists in proxy.").toComponent());
+                    }
+                    else {
+                        plugin.addToProxy(name, current, false);
+                        sender.sendMessage(Message.added(name).toComponent());
+                        if (!sender.equals(plugin.getProxy().getConsole())) {
+                            logger.info(sender.getName() + " is adding " + name + " to the proxy.");
+                        }
                     }
                 }
-            }
+            });
         } catch (APIException e) {
             logger.log(Level.SEVERE, "An API Error occurred!", e);
             sender.sendMessage(Message.API_ERROR);
@@ -4,6 +4,7 @@ import com.exaroton.api.APIException;
 import com.exaroton.api.server.Server;
 import com.exaroton.bungee.ExarotonPlugin;
 import com.exaroton.bungee.Message;
+import com.exaroton.bungee.RateLimiter;
 import com.exaroton.bungee.SubCommand;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.config.ServerInfo;
@@ -35,13 +36,20 @@ public class RemoveServer extends SubCommand {
                 return;
             }
 
-            Server server = plugin.findServer(name, false);
-            plugin.stopListeningToStatus(server.getId());
-            plugin.getProxy().getServers().remove(name);
-            sender.sendMessage(Message.removed(name).toComponent());
-            if (!sender.equals(plugin.getProxy().getConsole())) {
-                logger.info(sender.getName() + " removed " + name + " from the proxy.");
+            Server server = plugin.findServer(name, false, RateLimiter.Priority.INTERACTIVE);
+            if (server == null) {
+                sender.sendMessage(Message.SERVER_NOT_FOUND);
+                return;
             }
+
+            this.runForServer(sender, server, current -> {
+                plugin.stopListeningToStatus(current.getId());
+                plugin.removeFromProxy(name, current);
+                sender.sendMessage(Message.removed(name).toComponent());
+                if (!sender.equals(plugin.getProxy().getConsole())) {
+                    logger.info(sender.getName() + " removed " + name + " from the proxy.");
+                }
+            });
         } catch (APIException e) {
             logger.log(Level.SEVERE, "An API Error occurred!", e);
             sender.sendMessage(Message.API_ERROR);
@@ -0,0 +1,211 @@
+package com.exaroton.bungee.subcommands;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import com.exaroton.bungee.*;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.CommandSender;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class ShowStats extends SubCommand {
+
+    /**
+     * @param plugin exaroton plugin
+     */
+    public ShowStats(ExarotonPlugin plugin) {
+        super("stats", "Show cache, API and switch statistics", plugin);
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] args) {
+        List<String> lines = new ArrayList<>();
+        lines.add(this.cache());
+        lines.add(this.requests());
+        lines.add(this.latency());
+        lines.add(this.switches());
+        lines.add(this.queues());
+        lines.addAll(this.servers());
+        sender.sendMessage(Message.stats(lines).toComponent());
+    }
+
+    /**
+     * @return cache age and hit rate
+     */
+    private String cache() {
+        Metrics metrics = plugin.getMetrics();
+        long age = plugin.getServerCacheAge();
+        return "Server cache: " + value(age < 0 ? "empty" : "age " + seconds(age)) + ", hit rate "
+                + value(String.format("%.1f%%", metrics.getCacheHitRatio() * 100))
+                + " (" + metrics.getCacheHits() + " hits, " + metrics.getCacheMisses() + " misses)";
+    }
+
+    /**
+     * @return outstanding API requests and circuit state
+     */
+    private String requests() {
+        ApiRequests requests = plugin.getApiRequests();
+        Map<RateLimiter.Priority, Integer> waiting = requests.getRateLimiter().getQueueDepths();
+        int queued = 0;
+        for (int depth : waiting.values()) {
+            queued += depth;
+        }
+        return "API requests: " + value(requests.getInFlight() + " running") + ", " + value(queued + " waiting")
+                + " (interactive " + waiting.get(RateLimiter.Priority.INTERACTIVE)
+                + ", default " + waiting.get(RateLimiter.Priority.DEFAULT)
+                + ", background " + waiting.get(RateLimiter.Priority.BACKGROUND) + ")"
+                + ", circuit " + value(requests.getCircuitBreaker().getState().name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return average latency of each endpoint
+     */
+    private String latency() {
+        StringBuilder text = new StringBuilder("API latency:");
+        for (ApiRequests.Endpoint endpoint : ApiRequests.Endpoint.values()) {
+            ApiRequests.Stats stats = plugin.getApiRequests().getStats(endpoint);
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            text.append(' ').append(endpoint.getLabel()).append(' ')
+                    .append(value(Math.round(stats.getTotalSeconds() * 1000 / stats.getCount()) + "ms"))
+                    .append(" (").append(stats.getCount()).append(" requests, ").append(stats.getFailures()).append(" failed)");
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return switch latency histogram
+     */
+    private String switches() {
+        LatencyHistogram histogram = plugin.getSwitchLatency();
+        long count = histogram.getCount();
+        if (count == 0) {
+            return "Switches: " + value("none");
+        }
+
+        StringBuilder text = new StringBuilder("Switches: ")
+                .append(value(count + "")).append(", average ")
+                .append(value(String.format("%.1fs", histogram.getSumSeconds() / count)));
+        long[] bounds = histogram.getBounds(), counts = histogram.getCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            text.append(ChatColor.GRAY).append(i == 0 ? " | " : ", ")
+                    .append(i < bounds.length ? "<=" + seconds(bounds[i]) : ">" + seconds(bounds[bounds.length - 1]))
+                    .append(' ').append(value(counts[i] + ""));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return players waiting in switch queues
+     */
+    private String queues() {
+        Map<String, Integer> sizes = plugin.getSwitchQueue().sizes();
+        if (sizes.isEmpty()) {
+            return "Switch queues: " + value("empty");
+        }
+
+        ServerIndex index = plugin.getCachedServerIndex();
+        StringBuilder text = new StringBuilder("Switch queues:");
+        for (Map.Entry<String, Integer> queue : sizes.entrySet()) {
+            Server server = index == null ? null : index.getById(queue.getKey());
+            String name = server == null ? queue.getKey() : plugin.findServerName(server.getAddress(), server.getName());
+            text.append(' ').append(name).append(' ').append(value(queue.getValue() + ""));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return last status change and boot time of each watched server
+     */
+    private List<String> servers() {
+        List<String> lines = new ArrayList<>();
+        for (ServerStatusListener listener : plugin.getStatusListeners()) {
+            Server server = listener.getServer();
+            StringBuilder text = new StringBuilder("- ").append(listener.getName(server)).append(": ");
+            ServerStatusListener.StatusChange change = listener.getLastStatusChange();
+            if (change == null) {
+                text.append(value(status(server.getStatus())));
+            } else {
+                text.append(status(change.getOldStatus())).append(" -> ").append(value(status(change.getNewStatus())))
+                        .append(ChatColor.GRAY).append(' ')
+                        .append(seconds(System.currentTimeMillis() - change.getTime())).append(" ago");
+            }
+            if (listener.getLastStartupTime() >= 0) {
+                text.append(", boot ").append(value(seconds(listener.getLastStartupTime())));
+            }
+            lines.add(text.toString());
+        }
+        Collections.sort(lines);
+        if (lines.isEmpty()) {
+            lines.add("Watched servers: " + value("none"));
+        } else {
+            lines.add(0, "Watched servers:");
+        }
+        return lines;
+    }
+
+    /**
+     * @param text value
+     * @return highlighted value
+     */
+    private static String value(String text) {
+        return ChatColor.GREEN + text + ChatColor.GRAY;
+    }
+
+    /**
+     * @param millis duration in milliseconds
+     * @return duration in seconds
+     */
+    private static String seconds(long millis) {
+        return millis % 1000 == 0 ? millis / 1000 + "s" : String.format("%.1fs", millis / 1000.0);
+    }
+
+    /**
+     * @param status server status
+     * @return status name
+     */
+    private static String status(int status) {
+        switch (status) {
+            case ServerStatus.OFFLINE:
+                return "offline";
+            case ServerStatus.ONLINE:
+                return "online";
+            case ServerStatus.STARTING:
+                return "starting";
+            case ServerStatus.STOPPING:
+                return "stopping";
+            case ServerStatus.RESTARTING:
+                return "restarting";
+            case ServerStatus.SAVING:
+                return "saving";
+            case ServerStatus.LOADING:
+                return "loading";
+            case ServerStatus.CRASHED:
+                return "crashed";
+            case ServerStatus.PENDING:
+                return "pending";
+            case ServerStatus.PREPARING:
+                return "preparing";
+            default:
+                return "unknown";
+        }
+    }
+
+    @Override
+    public Iterable<String> onTabComplete(CommandSender sender, String[] args) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public String getPermission() {
+        return "exaroton.stats";
+    }
+}
@@ -3,8 +3,10 @@ package com.exaroton.bungee.subcommands;
 import com.exaroton.api.APIException;
 import com.exaroton.api.server.Server;
 import com.exaroton.api.server.ServerStatus;
+import com.exaroton.bungee.ApiRequests;
 import com.exaroton.bungee.ExarotonPlugin;
 import com.exaroton.bungee.Message;
+import com.exaroton.bungee.RateLimiter;
 import com.exaroton.bungee.ServerStatusListener;
 import com.exaroton.bungee.SubCommand;
 import net.md_5.bungee.api.CommandSender;
@@ -28,23 +30,25 @@ public class StartServer extends SubCommand {
         }
 
         try {
-            Server server = plugin.findServer(args[0], true);
+            Server server = plugin.findServer(args[0], true, RateLimiter.Priority.INTERACTIVE);
             if (server == null) {
                 sender.sendMessage(Message.SERVER_NOT_FOUND);
                 return;
             }
 
-            if (!server.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
-                sender.sendMessage(Message.SERVER_NOT_OFFLINE);
-                return;
-            }
+            this.runForServer(sender, server, current -> {
+                if (!current.hasStatus(ServerStatus.OFFLINE, ServerStatus.CRASHED)) {
+                    sender.sendMessage(Message.SERVER_NOT_OFFLINE);
+                    return;
+                }
 
-            ServerStatusListener listener = plugin.listenToStatus(server, sender, plugin.findServerName(server.getAddress()), ServerStatus.ONLINE);
-            server.start();
-            sender.sendMessage(Message.action("Starting", listener.getName(server)).toComponent());
-            if (!sender.equals(plugin.getProxy().getConsole())) {
-                logger.info(sender.getName() + " is starting " + listener.getName(server));
-            }
+                ServerStatusListener listener = plugin.listenToStatus(current, sender, plugin.findServerName(current.getAddress()), ServerStatus.ONLINE);
+                plugin.getApiRequests().run(RateLimiter.Priority.INTERACTIVE, ApiRequests.Endpoint.START, current::start);
+                sender.sendMessage(Message.action("Starting", listener.getName(current)).toComponent());
+                if (!sender.equals(plugin.getProxy().getConsole())) {
+                    logger.info(sender.getName() + " is starting " + listener.getName(current));
+                }
+            });
         } catch (APIException e) {
             logger.log(Level.SEVERE, "An API Error occurred!", e);
             sender.sendMessage(Message.API_ERROR);
@@ -6,6 +6,9 @@ import com.exaroton.bungee.*;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 
 public class SwitchServer extends SubCommand {
@@ -14,7 +17,7 @@ public class SwitchServer extends SubCommand {
      * @param plugin exaroton plugin
      */
     public SwitchServer(ExarotonPlugin plugin) {
-        super("switch", "Switch to a server and start it if necessary", plugin);
+        super("switch", "Switch to a server or pool and start it if necessary", plugin);
     }
 
     @Override
@@ -30,18 +33,46 @@ public class SwitchServer extends SubCommand {
                 return;
             }
 
-            Server server = plugin.findServer(args[0], true);
+            ServerPools pools = plugin.getServerPools();
+            boolean pool = pools.isPool(args[0]);
+            Server server = pool ? pools.select(args[0]) : plugin.findServer(args[0], true, RateLimiter.Priority.INTERACTIVE);
             if (server == null) {
                 sender.sendMessage(Message.SERVER_NOT_FOUND);
                 return;
             }
 
-            sender.sendMessage(Message.switching(plugin.findServerName(server.getAddress(), server.getName())).toComponent());
-            ExarotonPluginAPI.switchServer((ProxiedPlayer) sender, server);
+            ProxiedPlayer player = (ProxiedPlayer) sender;
+            String name = plugin.findServerName(server.getAddress(), server.getName());
+            sender.sendMessage(Message.switching(name).toComponent());
+            if (!SwitchQueue.isRequired(server)) {
+                if (!pool || (player.getServer() != null && player.getServer().getInfo().getName().equals(name))) {
+                    plugin.movePlayer(player, server);
+                    return;
+                }
+
+                // count the player on the member until the player shows up there
+                Runnable release = pools.reserve(server);
+                plugin.movePlayer(player, server).thenAccept(connected -> {
+                    if (!connected) {
+                        release.run();
+                    }
+                });
+                return;
+            }
+
+            SwitchQueue.Entry entry = plugin.getSwitchQueue().add(player, server);
+            sender.sendMessage(Message.queued(name, entry.getPosition()).toComponent());
+            entry.getFuture().whenComplete((ignored, e) -> {
+                if (e == null || e instanceof CancellationException) {
+                    return;
+                }
+                logger.log(Level.SEVERE, "Failed to switch " + sender.getName() + " to " + name, e);
+                sender.sendMessage(Message.error("Failed to execute switch command. Check your console for details.").toComponent());
+            });
         } catch (APIException e) {
             logger.log(Level.SEVERE, "An API Error occurred!", e);
             sender.sendMessage(Message.API_ERROR);
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             logger.log(Level.SEVERE, "Failed to execute switch command", e);
             sender.sendMessage(Message.error("Failed to execute switch command. Check your console for details.").toComponent());
         }
@@ -49,7 +80,14 @@ public class SwitchServer extends SubCommand {
 
     @Override
     public Iterable<String> onTabComplete(CommandSender sender, String[] args) {
-        return plugin.serverCompletions(args[0], null);
+        List<String> result = new ArrayList<>();
+        for (String pool : plugin.getServerPools().getNames()) {
+            if (pool.startsWith(args[0])) {
+                result.add(pool);
+            }
+        }
+        plugin.serverCompletions(args[0], null).forEach(result::add);
+        return result;
     }
 
     @Override
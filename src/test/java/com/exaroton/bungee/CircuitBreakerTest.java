@@ -0,0 +1,82 @@
+package com.exaroton.bungee;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    /**
+     * fake time in nanoseconds
+     */
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1, now::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.isRejecting());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.getRemainingOpenTime() > 0);
+        assertEquals(1, breaker.getOpenCount());
+    }
+
+    @Test
+    void successResetsTheFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, now::get);
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertFalse(breaker.isRejecting());
+    }
+
+    @Test
+    void trialRequestClosesTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, now::get);
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertTrue(breaker.isRejecting());
+        assertEquals(1, breaker.getRemainingOpenTime());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertFalse(breaker.isRejecting());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // only a single trial request is let through
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.isRejecting());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(0, breaker.getRemainingOpenTime());
+    }
+
+    @Test
+    void failedTrialRequestOpensTheCircuitAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1, now::get);
+        breaker.onFailure();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.getOpenCount());
+    }
+}
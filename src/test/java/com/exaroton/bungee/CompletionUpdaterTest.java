@@ -0,0 +1,66 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.exaroton.bungee.TestServers.server;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionUpdaterTest {
+
+    /**
+     * bungee server name -> exaroton address
+     */
+    private final Map<String, String> aliases = Collections.singletonMap("lobby", "a.exaroton.me");
+
+    @Test
+    void updateMovesTheServerToItsStatus() {
+        ServerIndex index = new ServerIndex(new Server[]{server("a", ServerStatus.OFFLINE)});
+        AtomicReference<CompletionIndex> completions = new AtomicReference<>(CompletionIndex.EMPTY);
+        CompletionUpdater updater = new CompletionUpdater(completions, aliases, () -> index);
+        updater.refreshed(index);
+        assertEquals(List.of("lobby"), completions.get().findBungeeServers("l", ServerStatus.OFFLINE));
+
+        Server online = server("a", ServerStatus.ONLINE);
+        index.update(online);
+        updater.updated(index, online);
+        assertEquals(List.of("lobby"), completions.get().findBungeeServers("l", ServerStatus.ONLINE));
+        assertTrue(completions.get().findBungeeServers("l", ServerStatus.OFFLINE).isEmpty());
+    }
+
+    @Test
+    void lateUpdateDoesNotRestoreAnOlderServerList() {
+        ServerIndex old = new ServerIndex(new Server[]{server("a", ServerStatus.OFFLINE)});
+        ServerIndex latest = new ServerIndex(new Server[]{server("a", ServerStatus.ONLINE), server("b", ServerStatus.ONLINE)});
+        AtomicReference<ServerIndex> cached = new AtomicReference<>(latest);
+        AtomicReference<CompletionIndex> completions = new AtomicReference<>(CompletionIndex.EMPTY);
+        CompletionUpdater updater = new CompletionUpdater(completions, aliases, cached::get);
+
+        updater.refreshed(latest);
+        // reported after the refresh, with the server list that was current when the update was applied
+        updater.updated(old, server("a", ServerStatus.OFFLINE));
+
+        assertSame(latest, completions.get().getServerIndex());
+        assertTrue(completions.get().find("b", ServerStatus.ONLINE).contains("b.exaroton.me"));
+    }
+
+    @Test
+    void lateRefreshDoesNotReplaceANewerServerList() {
+        ServerIndex old = new ServerIndex(new Server[]{server("a", ServerStatus.OFFLINE)});
+        ServerIndex latest = new ServerIndex(new Server[]{server("a", ServerStatus.ONLINE)});
+        AtomicReference<CompletionIndex> completions = new AtomicReference<>(CompletionIndex.EMPTY);
+        CompletionUpdater updater = new CompletionUpdater(completions, aliases, () -> latest);
+
+        updater.refreshed(latest);
+        CompletionIndex current = completions.get();
+        updater.refreshed(old);
+
+        assertSame(current, completions.get());
+    }
+}
@@ -0,0 +1,128 @@
+package com.exaroton.bungee;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void burstIsSentWithoutWaiting() {
+        RateLimiter limiter = new RateLimiter(1, 3);
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            limiter.acquireUninterruptibly(RateLimiter.Priority.DEFAULT);
+        }
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(3, limiter.getAcquired());
+    }
+
+    @Test
+    void tokensAreRefilledUpToTheBurst() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(20, 2);
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+
+        // enough time for 6 tokens, but only 2 are stored
+        Thread.sleep(300);
+        long start = System.nanoTime();
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(25));
+
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(25));
+        assertTrue(limiter.getThrottled() >= 1);
+    }
+
+    @Test
+    void higherPrioritiesAreServedFirst() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(4, 1);
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+
+        List<RateLimiter.Priority> served = new CopyOnWriteArrayList<>();
+        Thread background = this.acquire(limiter, RateLimiter.Priority.BACKGROUND, served);
+        this.awaitQueueDepth(limiter, RateLimiter.Priority.BACKGROUND, 1);
+        Thread first = this.acquire(limiter, RateLimiter.Priority.DEFAULT, served);
+        this.awaitQueueDepth(limiter, RateLimiter.Priority.DEFAULT, 1);
+        Thread second = this.acquire(limiter, RateLimiter.Priority.DEFAULT, served);
+        this.awaitQueueDepth(limiter, RateLimiter.Priority.DEFAULT, 2);
+        Thread interactive = this.acquire(limiter, RateLimiter.Priority.INTERACTIVE, served);
+
+        for (Thread thread : new Thread[]{background, first, second, interactive}) {
+            thread.join(5000);
+        }
+        assertEquals(List.of(RateLimiter.Priority.INTERACTIVE, RateLimiter.Priority.DEFAULT,
+                RateLimiter.Priority.DEFAULT, RateLimiter.Priority.BACKGROUND), served);
+    }
+
+    @Test
+    void noLimitNeverWaits() {
+        RateLimiter limiter = new RateLimiter(0, 1);
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquireUninterruptibly(RateLimiter.Priority.BACKGROUND);
+        }
+
+        assertEquals(1000, limiter.getAcquired());
+        assertEquals(0, limiter.getThrottled());
+    }
+
+    @Test
+    void interruptedRequestLeavesTheLane() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1, 1);
+        limiter.acquire(RateLimiter.Priority.DEFAULT);
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiting = new Thread(() -> {
+            try {
+                limiter.acquire(RateLimiter.Priority.DEFAULT);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+        });
+        waiting.start();
+        this.awaitQueueDepth(limiter, RateLimiter.Priority.DEFAULT, 1);
+        waiting.interrupt();
+        waiting.join(5000);
+
+        assertTrue(interrupted.get());
+        assertEquals(0, limiter.getQueueDepth(RateLimiter.Priority.DEFAULT));
+    }
+
+    /**
+     * acquire a token on a new thread
+     * @param limiter  rate limiter
+     * @param priority priority of the request
+     * @param served   order in which the requests were let through
+     * @return started thread
+     */
+    private Thread acquire(RateLimiter limiter, RateLimiter.Priority priority, List<RateLimiter.Priority> served) {
+        Thread thread = new Thread(() -> {
+            limiter.acquireUninterruptibly(priority);
+            served.add(priority);
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * wait until enough requests are waiting in this lane
+     * @param limiter  rate limiter
+     * @param priority priority lane
+     * @param depth    number of waiting requests
+     * @throws InterruptedException interrupted while waiting
+     */
+    private void awaitQueueDepth(RateLimiter limiter, RateLimiter.Priority priority, int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getQueueDepth(priority) < depth) {
+            assertTrue(System.nanoTime() < deadline, "requests aren't waiting");
+            Thread.sleep(1);
+        }
+    }
+}
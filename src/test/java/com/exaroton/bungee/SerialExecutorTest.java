@@ -0,0 +1,131 @@
+package com.exaroton.bungee;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialExecutorTest {
+
+    /**
+     * logger
+     */
+    private final Logger logger = Logger.getLogger("SerialExecutorTest");
+
+    /**
+     * shared executor
+     */
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void tasksWithTheSameKeyRunInOrder() throws InterruptedException {
+        SerialExecutor executor = new SerialExecutor(pool, logger);
+        List<Integer> order = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int task = i;
+            executor.execute("server", () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(task);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void tasksWithDifferentKeysRunInParallel() throws Exception {
+        SerialExecutor executor = new SerialExecutor(pool, logger);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> first = executor.submit("a", () -> started.await(5, TimeUnit.SECONDS));
+        executor.execute("b", started::countDown);
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void nestedTaskWithTheSameKeyRunsImmediately() throws Exception {
+        SerialExecutor executor = new SerialExecutor(pool, logger);
+        CompletableFuture<String> outer = executor.submit("server", () -> {
+            CompletableFuture<String> inner = executor.submit("server", () -> "inner");
+            // waiting for it in the queue would never finish
+            assertTrue(inner.isDone());
+            return executor.join("server", inner) + " outer";
+        });
+
+        assertEquals("inner outer", outer.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void joinRunsPendingTasksOnTheCallingThread() {
+        // an executor that never runs anything, like a pool whose threads are all waiting
+        SerialExecutor executor = new SerialExecutor(task -> { }, logger);
+        List<String> order = new ArrayList<>();
+        executor.execute("server", () -> order.add("first"));
+        CompletableFuture<Thread> second = executor.submit("server", Thread::currentThread);
+        executor.execute("server", () -> order.add("third"));
+
+        assertEquals(Thread.currentThread(), executor.join("server", second));
+        assertEquals(List.of("first"), order);
+        assertEquals(1, executor.getPendingTasks());
+    }
+
+    @Test
+    void joinDoesNotNeedAFreeThread() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            SerialExecutor executor = new SerialExecutor(single, logger);
+            // the only thread waits for a task with another key, which is queued behind it
+            CompletableFuture<String> outer = executor.submit("a", () ->
+                    executor.join("b", executor.submit("b", () -> "b")) + "a");
+
+            assertEquals("ba", outer.get(5, TimeUnit.SECONDS));
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void joinThrowsTheExceptionOfTheTask() {
+        SerialExecutor executor = new SerialExecutor(pool, logger);
+        CompletableFuture<Object> failed = executor.submit("server", () -> {
+            throw new IllegalStateException("failed");
+        });
+
+        CompletionException e = assertThrows(CompletionException.class, () -> executor.join("server", failed));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void failedTaskDoesNotStopTheQueue() throws InterruptedException {
+        SerialExecutor executor = new SerialExecutor(pool, logger);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute("server", () -> {
+            throw new IllegalStateException("failed");
+        });
+        executor.execute("server", done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
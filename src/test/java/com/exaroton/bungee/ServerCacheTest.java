@@ -0,0 +1,187 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.APIException;
+import com.exaroton.api.ExarotonClient;
+import com.exaroton.api.server.Server;
+import com.exaroton.api.server.ServerStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.exaroton.bungee.TestServers.server;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServerCacheTest {
+
+    /**
+     * logger
+     */
+    private final Logger logger = Logger.getLogger("ServerCacheTest");
+
+    @Test
+    void updateDuringRefreshIsKept() throws Exception {
+        BlockingClient client = new BlockingClient(servers(server("a", ServerStatus.OFFLINE)));
+        ServerCache cache = this.createCache(client);
+        CompletableFuture<ServerIndex> refresh = CompletableFuture.supplyAsync(() -> refresh(cache, RateLimiter.Priority.DEFAULT));
+        client.awaitSent(0);
+
+        // the status update arrives after the request was sent, so the response doesn't contain it yet
+        cache.update(server("a", ServerStatus.ONLINE));
+        client.respond(0);
+
+        assertEquals(ServerStatus.ONLINE, refresh.get(5, TimeUnit.SECONDS).getById("a").getStatus());
+        assertEquals(ServerStatus.ONLINE, cache.peek().getById("a").getStatus());
+    }
+
+    @Test
+    void updateBeforeRefreshIsReplaced() throws APIException {
+        BlockingClient client = new BlockingClient(servers(server("a", ServerStatus.OFFLINE)),
+                servers(server("a", ServerStatus.OFFLINE)));
+        client.respond(0);
+        client.respond(1);
+        ServerCache cache = this.createCache(client);
+        cache.refresh();
+        cache.update(server("a", ServerStatus.ONLINE));
+        assertEquals(ServerStatus.ONLINE, cache.peek().getById("a").getStatus());
+
+        // the fetched server list is newer than the update
+        cache.refresh();
+        assertEquals(ServerStatus.OFFLINE, cache.peek().getById("a").getStatus());
+    }
+
+    @Test
+    void backgroundRefreshJoinsTheRunningRequest() throws Exception {
+        BlockingClient client = new BlockingClient(servers(server("a", ServerStatus.ONLINE)));
+        ServerCache cache = this.createCache(client);
+        CompletableFuture<ServerIndex> first = CompletableFuture.supplyAsync(() -> refresh(cache, RateLimiter.Priority.DEFAULT));
+        client.awaitSent(0);
+        CompletableFuture<ServerIndex> background = cache.refreshAsync();
+        assertFalse(background.isDone());
+        client.respond(0);
+
+        assertSame(first.get(5, TimeUnit.SECONDS), background.get(5, TimeUnit.SECONDS));
+        assertEquals(1, client.requests.get());
+    }
+
+    @Test
+    void olderResponseDoesNotReplaceNewerServerList() throws Exception {
+        BlockingClient client = new BlockingClient(servers(server("a", ServerStatus.OFFLINE)),
+                servers(server("a", ServerStatus.ONLINE)));
+        ServerCache cache = this.createCache(client);
+        CompletableFuture<ServerIndex> background = CompletableFuture.supplyAsync(() -> refresh(cache, RateLimiter.Priority.BACKGROUND));
+        client.awaitSent(0);
+
+        // a command doesn't wait for the background request and sends its own
+        CompletableFuture<ServerIndex> interactive = CompletableFuture.supplyAsync(() -> refresh(cache, RateLimiter.Priority.INTERACTIVE));
+        client.awaitSent(1);
+        client.respond(1);
+        assertEquals(ServerStatus.ONLINE, interactive.get(5, TimeUnit.SECONDS).getById("a").getStatus());
+
+        // the response to the first request arrives last
+        client.respond(0);
+        assertEquals(ServerStatus.ONLINE, background.get(5, TimeUnit.SECONDS).getById("a").getStatus());
+        assertEquals(ServerStatus.ONLINE, cache.peek().getById("a").getStatus());
+    }
+
+    /**
+     * @param client exaroton client
+     * @return server cache that never refreshes on its own
+     */
+    private ServerCache createCache(ExarotonClient client) {
+        ApiRequests requests = new ApiRequests(new RateLimiter(0, 1), new CircuitBreaker(5, 30), logger, 1, 0, 0);
+        return new ServerCache(client, Runnable::run, requests, logger, 3600, 3600);
+    }
+
+    /**
+     * @param cache    server cache
+     * @param priority priority of the request
+     * @return fetched server index
+     */
+    private static ServerIndex refresh(ServerCache cache, RateLimiter.Priority priority) {
+        try {
+            return cache.refresh(priority);
+        } catch (APIException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * @param servers servers
+     * @return server list
+     */
+    private static Server[] servers(Server... servers) {
+        return servers;
+    }
+
+    /**
+     * client that holds the response to each server list request until it is released
+     */
+    private static class BlockingClient extends ExarotonClient {
+
+        /**
+         * server list to respond with for each request
+         */
+        private final Server[][] responses;
+
+        /**
+         * counted down when the request was sent
+         */
+        private final CountDownLatch[] sent;
+
+        /**
+         * count down to send the response
+         */
+        private final CountDownLatch[] released;
+
+        /**
+         * number of requests
+         */
+        private final AtomicInteger requests = new AtomicInteger();
+
+        /**
+         * @param responses server list to respond with for each request
+         */
+        private BlockingClient(Server[]... responses) {
+            super("test");
+            this.responses = responses;
+            this.sent = new CountDownLatch[responses.length];
+            this.released = new CountDownLatch[responses.length];
+            for (int i = 0; i < responses.length; i++) {
+                sent[i] = new CountDownLatch(1);
+                released[i] = new CountDownLatch(1);
+            }
+        }
+
+        /**
+         * @param request number of the request
+         * @throws InterruptedException interrupted while waiting
+         */
+        private void awaitSent(int request) throws InterruptedException {
+            assertTrue(sent[request].await(5, TimeUnit.SECONDS), "request " + request + " wasn't sent");
+        }
+
+        /**
+         * @param request number of the request
+         */
+        private void respond(int request) {
+            released[request].countDown();
+        }
+
+        @Override
+        public Server[] getServers() throws APIException {
+            int request = requests.getAndIncrement();
+            sent[request].countDown();
+            try {
+                if (!released[request].await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("No response");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new APIException("Interrupted", e);
+            }
+            return responses[request].clone();
+        }
+    }
+}
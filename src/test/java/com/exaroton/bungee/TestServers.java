@@ -0,0 +1,33 @@
+package com.exaroton.bungee;
+
+import com.exaroton.api.server.Server;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * servers for tests that were never requested from the API
+ */
+final class TestServers {
+
+    /**
+     * gson instance used to create servers without the API
+     */
+    private static final Gson GSON = new Gson();
+
+    private TestServers() {
+    }
+
+    /**
+     * @param id     server id, also used as the name and subdomain
+     * @param status server status
+     * @return server
+     */
+    static Server server(String id, int status) {
+        JsonObject json = new JsonObject();
+        json.addProperty("id", id);
+        json.addProperty("name", id);
+        json.addProperty("address", id + ".exaroton.me");
+        json.addProperty("status", status);
+        return GSON.fromJson(json, Server.class);
+    }
+}